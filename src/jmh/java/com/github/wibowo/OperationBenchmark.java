@@ -0,0 +1,25 @@
+package com.github.wibowo;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the lookup of {@link Operation} for a token.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OperationBenchmark {
+
+    @Param({"42", "-42.123456", "+", "sqrt", "SQRT", "("})
+    public String token;
+
+    @Benchmark
+    public Operation findOperation() {
+        return Operation.findOperation(token);
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.wibowo;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link CalculatorSession#processLine(String, CalculatorOutput)} end to end: tokenizing, operation lookup,
+ * number parsing, evaluation and stack manipulation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RPNCalculatorBenchmark {
+
+    @Param({
+            "5 2 +",
+            "1 2 3 4 5 * * * *",
+            "7 12 2 / * 4 /",
+            "2 sqrt 9 sqrt +",
+            "42.123456 -3.5 * 100 + 0.25 -"
+    })
+    public String line;
+
+    @Param({"scale-30", "double", "decimal64", "decimal128"})
+    public String precision;
+
+    private String longLine;
+
+    private CalculatorSession session;
+
+    private CalculatorSession deferredSession;
+
+    private Precision profile;
+
+    private final CalculatorOutput output = new CalculatorOutput() {
+        @Override
+        public void info(final String message) {
+        }
+
+        @Override
+        public void warn(final String message) {
+        }
+    };
+
+    @Setup
+    public void setUp() {
+        session = new CalculatorSession();
+        profile = Precision.parse(precision);
+        session.setPrecision(profile);
+        deferredSession = new CalculatorSession();
+        deferredSession.setPrecision(profile);
+        deferredSession.setDeferred(true);
+
+        // 500 numbers summed up, similar to the generated input lines
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            builder.append(i).append(".5 ");
+        }
+        for (int i = 0; i < 499; i++) {
+            builder.append("+ ");
+        }
+        longLine = builder.toString();
+    }
+
+    @Benchmark
+    public void processLine(final Blackhole blackhole) {
+        blackhole.consume(session.processLine(line, output));
+        session.reset();
+        session.setPrecision(profile);
+    }
+
+    /**
+     * Compiling the line, which is what a line missing the {@link ProgramCache} costs
+     */
+    @Benchmark
+    public CompiledProgram compile() {
+        return CompiledProgram.compile(line);
+    }
+
+    @Benchmark
+    public void processLongLine(final Blackhole blackhole) {
+        blackhole.consume(session.processLine(longLine, output));
+        session.reset();
+        session.setPrecision(profile);
+    }
+
+    /**
+     * The long line in deferred mode: the 499 additions are computed at once, when the stack is shown
+     */
+    @Benchmark
+    public void processLongLineDeferred(final Blackhole blackhole) {
+        blackhole.consume(deferredSession.processLine(longLine, output));
+        blackhole.consume(deferredSession.toString());
+        deferredSession.reset();
+        deferredSession.setPrecision(profile);
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.wibowo;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the stack operations performed for every token, and the cost of a fork, for each stack implementation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RPNStackBenchmark {
+
+    @Param({"10000"})
+    public int depth;
+
+    @Param({"array", "persistent"})
+    public String implementation;
+
+    private CalculatorStack<RealNumber> stack;
+
+    /**
+     * Stack holding {@link #depth} items
+     */
+    private CalculatorStack<RealNumber> filledStack;
+
+    private final RealNumber first = RealNumber.of("5");
+    private final RealNumber second = RealNumber.of("2");
+
+    @Setup
+    public void setUp() {
+        stack = newStack();
+        filledStack = newStack();
+        for (int i = 0; i < depth; i++) {
+            filledStack.push(first);
+        }
+    }
+
+    private CalculatorStack<RealNumber> newStack() {
+        return "array".equals(implementation) ? new RPNStack<>() : new PersistentRPNStack<>();
+    }
+
+    @Benchmark
+    public void pushAndPopPair(final Blackhole blackhole) {
+        stack.push(first).push(second);
+        for (final RealNumber number : stack.pop(2)) {
+            blackhole.consume(number);
+        }
+    }
+
+    @Benchmark
+    public void fillAndDrain(final Blackhole blackhole) {
+        for (int i = 0; i < depth; i++) {
+            stack.push(first);
+        }
+        for (int i = 0; i < depth; i++) {
+            blackhole.consume(stack.pop());
+        }
+    }
+
+    /**
+     * Taking a snapshot of a deep stack, and branching off it
+     */
+    @Benchmark
+    public CalculatorStack<RealNumber> forkAndPush() {
+        return filledStack.snapshot().push(second);
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.wibowo;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing of numbers given by user, formatting of numbers for presentation, and their binary form.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RealNumberBenchmark {
+
+    @Param({"5", "-42.123456", "1000000", "3.141592653589793238462643383279"})
+    public String numberAsString;
+
+    private RealNumber number;
+
+    private BigDecimal value;
+
+    private final LiteralCache literalCache = new LiteralCache(1024);
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+
+    private final ByteBuffer encoded = ByteBuffer.allocateDirect(64);
+
+    @Setup
+    public void setUp() {
+        number = RealNumber.of(numberAsString);
+        value = number.eval();
+        literalCache.put(numberAsString, 0, numberAsString.length(), number);
+        RealNumberCodec.encode(number, encoded);
+        encoded.flip();
+    }
+
+    @Benchmark
+    public RealNumber parse() {
+        return RealNumber.of(numberAsString);
+    }
+
+    /**
+     * Looking up a literal already in the {@link LiteralCache}
+     */
+    @Benchmark
+    public RealNumber parseCached() {
+        return literalCache.get(numberAsString, 0, numberAsString.length());
+    }
+
+    /**
+     * Formatting a number for the first time
+     */
+    @Benchmark
+    public String format() {
+        return RealNumber.of(value).toString();
+    }
+
+    /**
+     * Formatting a number already formatted before
+     */
+    @Benchmark
+    public String formatCached() {
+        return number.toString();
+    }
+
+    @Benchmark
+    public ByteBuffer encode() {
+        buffer.clear();
+        RealNumberCodec.encode(number, buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public RealNumber decode() {
+        encoded.rewind();
+        return RealNumberCodec.decode(encoded);
+    }
+}
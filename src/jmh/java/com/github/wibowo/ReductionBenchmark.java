@@ -0,0 +1,57 @@
+package com.github.wibowo;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a whole stack reduction, e.g. <code>sum</code>, with the chain of binary operations it replaces, e.g.
+ * <code>+ + ... +</code>. Above {@link Reductions#PARALLEL_THRESHOLD} items, the reduction is split across threads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReductionBenchmark {
+
+    @Param({"1000", "1000000"})
+    public int size;
+
+    @Param({"scale-30", "double"})
+    public String precision;
+
+    private final List<RealNumber> numbers = new ArrayList<>();
+
+    private Precision profile;
+
+    @Setup
+    public void setUp() {
+        profile = Precision.parse(precision);
+        for (int i = 0; i < size; i++) {
+            numbers.add(RealNumber.of(i + ".25"));
+        }
+    }
+
+    @Benchmark
+    public RealNumber sum() {
+        return Operation.Sum.evaluate(numbers, profile);
+    }
+
+    @Benchmark
+    public RealNumber chainOfPlus() {
+        RealNumber sum = numbers.get(0);
+        for (int i = 1; i < numbers.size(); i++) {
+            sum = Operation.Plus.apply(profile, numbers.get(i), sum);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public RealNumber max() {
+        return Operation.Max.evaluate(numbers, profile);
+    }
+}
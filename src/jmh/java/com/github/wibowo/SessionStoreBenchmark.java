@@ -0,0 +1,121 @@
+package com.github.wibowo;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Measures the restart-to-ready time of a session kept by a {@link SessionStore}: reading the snapshot of a deep stack,
+ * and replaying the journal of the lines processed since.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionStoreBenchmark {
+
+    private static final int TOKENS_PER_LINE = 1000;
+
+    /**
+     * Items in the snapshot
+     */
+    @Param({"1000000"})
+    public int depth;
+
+    /**
+     * Lines journaled after the snapshot
+     */
+    @Param({"0", "100000"})
+    public int lines;
+
+    private final CalculatorOutput output = new CalculatorOutput() {
+        @Override
+        public void info(final String message) {
+        }
+
+        @Override
+        public void warn(final String message) {
+        }
+    };
+
+    /**
+     * Store as left by a process that died, copied before each restart
+     */
+    private Path template;
+
+    private Path directory;
+
+    private SessionStore store;
+
+    @Setup(Level.Trial)
+    public void createTemplate() throws IOException {
+        template = Files.createTempDirectory("rpn-store-template");
+        try (SessionStore store = open(template)) {
+            final CalculatorSession session = new CalculatorSession(CalculatorSession.UNLIMITED_UNDO_DEPTH, store.stack());
+            final StringBuilder line = new StringBuilder();
+            for (int i = 0; i < depth; i++) {
+                line.append(i % 100).append(".25 ");
+                if ((i + 1) % TOKENS_PER_LINE == 0) {
+                    session.processLine(line.toString(), output);
+                    line.setLength(0);
+                }
+            }
+            session.processLine(line.toString() + "0", output);
+        }
+        final SessionStore store = open(template);
+        final CalculatorSession session = new CalculatorSession(CalculatorSession.UNLIMITED_UNDO_DEPTH, store.stack());
+        for (int i = 0; i < lines; i++) {
+            session.processLine(i % 2 == 0 ? "7 +" : "7 -", output);
+        }
+        store.sync();
+    }
+
+    @Setup(Level.Invocation)
+    public void copyTemplate() throws IOException {
+        directory = Files.createTempDirectory("rpn-store");
+        try (Stream<Path> files = Files.list(template)) {
+            for (final Path file : files.collect(Collectors.toList())) {
+                Files.copy(file, directory.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    @Benchmark
+    public int restart() throws IOException {
+        store = open(directory);
+        return store.stack().size();
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteCopy() throws IOException {
+        store.close();
+        delete(directory);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteTemplate() throws IOException {
+        delete(template);
+    }
+
+    private static SessionStore open(final Path directory) throws IOException {
+        return SessionStore.open(directory, SessionStore.DEFAULT_SYNC_INTERVAL_MILLIS, Integer.MAX_VALUE,
+                SessionStore.DEFAULT_CHUNK_SIZE, RPNStack::new);
+    }
+
+    private static void delete(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (final Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+}
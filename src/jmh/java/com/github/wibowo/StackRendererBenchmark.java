@@ -0,0 +1,51 @@
+package com.github.wibowo;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures rendering a deep stack after a line changed only its top item.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StackRendererBenchmark {
+
+    @Param({"100000"})
+    public int depth;
+
+    @Param({"full", "incremental", "window:10"})
+    public String renderer;
+
+    private CalculatorSession session;
+
+    private final CalculatorOutput output = new CalculatorOutput() {
+        @Override
+        public void info(final String message) {
+        }
+
+        @Override
+        public void warn(final String message) {
+        }
+    };
+
+    @Setup
+    public void setUp() {
+        session = new CalculatorSession();
+        session.setRenderer(StackRenderer.parse(renderer));
+        for (int i = 0; i < depth; i++) {
+            session.processLine(i + ".25", output);
+        }
+        session.render();
+    }
+
+    @Benchmark
+    public String processLineAndRender() {
+        session.processLine("2 *", output);
+        return session.render();
+    }
+}
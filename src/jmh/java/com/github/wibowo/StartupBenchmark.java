@@ -0,0 +1,88 @@
+package com.github.wibowo;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time from launching the calculator in a new JVM to reading the result of its first line, for the
+ * default mode (logger, JMX and Flight Recorder events), the console mode, and the console mode with the AppCDS archive
+ * generated by <code>gradle appCds</code>. Runs the shadow jar given by the <code>rpn.shadowJar</code> property, which
+ * <code>gradle jmh</code> sets.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 20)
+@Fork(1)
+public class StartupBenchmark {
+
+    @Param({"logger", "console", "console-appcds"})
+    public String mode;
+
+    private final List<String> command = new ArrayList<>();
+
+    private Process process;
+
+    @Setup
+    public void setUp() {
+        final String shadowJar = System.getProperty("rpn.shadowJar");
+        if (shadowJar == null || !new File(shadowJar).isFile()) {
+            throw new IllegalStateException("No shadow jar: run with gradle shadowJar jmh");
+        }
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        if (mode.endsWith("-appcds")) {
+            final File archive = new File(shadowJar.replaceAll("\\.jar$", ".jsa"));
+            if (!archive.isFile()) {
+                throw new IllegalStateException("No AppCDS archive: run gradle appCds first");
+            }
+            // fails rather than silently running without the archive
+            command.add("-Xshare:on");
+            command.add("-XX:SharedArchiveFile=" + archive);
+        }
+        command.add("-jar");
+        command.add(shadowJar);
+        if (mode.startsWith("console")) {
+            command.add(RPNCalculator.CONSOLE_OPTION);
+        }
+    }
+
+    @Benchmark
+    public String timeToFirstResult() throws IOException {
+        process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        try (final OutputStream input = process.getOutputStream()) {
+            input.write("1 2 +\n".getBytes(StandardCharsets.UTF_8));
+        }
+        final BufferedReader output = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = output.readLine()) != null) {
+            if (line.startsWith("stack:")) {
+                return line;
+            }
+        }
+        throw new IllegalStateException("No result");
+    }
+
+    /**
+     * Waits for the calculator to exit, at the end of its input, outside of the measured time
+     */
+    @TearDown(Level.Invocation)
+    public void tearDown() throws InterruptedException {
+        if (process != null) {
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+            process = null;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.wibowo;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures splitting a line into tokens, and locating the failing token when reporting an error.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenizedLineBenchmark {
+
+    @Param({"10", "1000"})
+    public int numberOfTokens;
+
+    private String line;
+
+    @Setup
+    public void setUp() {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < numberOfTokens - 1; i++) {
+            builder.append(i % 2 == 0 ? "1.5" : "*").append("   ");
+        }
+        builder.append("+");
+        line = builder.toString();
+    }
+
+    @Benchmark
+    public TokenizedLine tokenize() {
+        return TokenizedLine.tokenize(line);
+    }
+
+    @Benchmark
+    public int findLastToken() {
+        return TokenizedLine.tokenize(line).position(numberOfTokens - 1);
+    }
+}
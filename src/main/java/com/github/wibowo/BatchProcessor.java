@@ -0,0 +1,178 @@
+package com.github.wibowo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Evaluates a file of command lines, where each line is an independent expression evaluated against an empty stack.
+ * For each line, the warnings (if any) and the resulting stack are written to the output file.
+ *
+ * The input file is read through memory mapped windows of at most {@link #WINDOW_SIZE} bytes, so no line may be
+ * longer than that. Blank lines are skipped, as in interactive mode.
+ */
+public final class BatchProcessor {
+
+    static final long WINDOW_SIZE = 1L << 28;
+
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    private BatchProcessor() {}
+
+    /**
+     * @param input file containing the command lines, in UTF-8
+     * @param output file to write the result to, in UTF-8. Overwritten if it exists.
+     * @return summary of the processing
+     * @throws IOException if reading the input, or writing the output fails
+     */
+    public static BatchSummary process(final @NotNull Path input,
+                                       final @NotNull Path output) throws IOException {
+        Objects.requireNonNull(input);
+        Objects.requireNonNull(output);
+        final long startTime = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ);
+             Writer writer = new BufferedWriter(
+                     new OutputStreamWriter(Files.newOutputStream(output), StandardCharsets.UTF_8),
+                     OUTPUT_BUFFER_SIZE)) {
+            final LineEvaluator lineEvaluator = new LineEvaluator();
+            final long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                final int length = (int) Math.min(WINDOW_SIZE, size - position);
+                final MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                final boolean lastWindow = position + length == size;
+                final int consumed = lineEvaluator.evaluateLines(window, 0, length, lastWindow, writer);
+                position += checkProgress(consumed, position);
+            }
+            return new BatchSummary(lineEvaluator.lines(), System.nanoTime() - startTime);
+        } catch (final UncheckedIOException exception) {
+            throw exception.getCause();
+        }
+    }
+
+    /**
+     * @param consumed number of bytes consumed from the window starting at the given position
+     * @param position position of the window in the input
+     * @return consumed bytes
+     * @throws IOException if nothing was consumed, i.e. the window does not contain a whole line
+     */
+    static int checkProgress(final int consumed,
+                             final long position) throws IOException {
+        if (consumed == 0) {
+            throw new IOException(String.format("Line starting at offset %d is longer than %d bytes", position, WINDOW_SIZE));
+        }
+        return consumed;
+    }
+
+    /**
+     * Evaluates lines read from a buffer, and writes the result of each one to the given {@link Appendable}.
+     * Not thread safe: the session and the line buffer are reused from one line to the next.
+     */
+    static final class LineEvaluator implements CalculatorOutput {
+        private final CalculatorSession session = new CalculatorSession();
+
+        private byte[] lineBytes = new byte[256];
+
+        private Appendable output;
+
+        private long lines;
+
+        private long busyNanos;
+
+        /**
+         * Evaluate the lines in the given range of the buffer.
+         *
+         * @param buffer buffer containing the lines
+         * @param from offset of the first line, inclusive
+         * @param to end of the range, exclusive
+         * @param endOfInput <code>true</code> if the range is the end of the input, so the last line is evaluated
+         *                   even if it is not terminated by a new line
+         * @param output destination of the result of each line
+         * @return number of bytes consumed, i.e. up to the end of the last line evaluated
+         */
+        int evaluateLines(final ByteBuffer buffer,
+                          final int from,
+                          final int to,
+                          final boolean endOfInput,
+                          final Appendable output) {
+            final long startTime = System.nanoTime();
+            this.output = output;
+            int lineStart = from;
+            for (int i = from; i < to; i++) {
+                if (buffer.get(i) == '\n') {
+                    evaluateLine(buffer, lineStart, i);
+                    lineStart = i + 1;
+                }
+            }
+            if (endOfInput && lineStart < to) {
+                evaluateLine(buffer, lineStart, to);
+                lineStart = to;
+            }
+            this.output = null;
+            busyNanos += System.nanoTime() - startTime;
+            return lineStart - from;
+        }
+
+        private void evaluateLine(final ByteBuffer buffer,
+                                  final int from,
+                                  final int to) {
+            int end = to;
+            if (end > from && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+            final int length = end - from;
+            if (length > lineBytes.length) {
+                lineBytes = new byte[Math.max(length, lineBytes.length * 2)];
+            }
+            for (int i = 0; i < length; i++) {
+                lineBytes[i] = buffer.get(from + i);
+            }
+            final String line = new String(lineBytes, 0, length, StandardCharsets.UTF_8);
+            if (line.trim().isEmpty()) {
+                return;
+            }
+
+            session.reset();
+            session.processLine(line, this);
+            info(session.toString());
+            lines++;
+        }
+
+        long lines() {
+            return lines;
+        }
+
+        /**
+         * @return time spent evaluating lines
+         */
+        long busyNanos() {
+            return busyNanos;
+        }
+
+        @Override
+        public void info(final String message) {
+            write(message);
+        }
+
+        @Override
+        public void warn(final String message) {
+            write(message);
+        }
+
+        private void write(final String message) {
+            try {
+                output.append(message).append('\n');
+            } catch (final IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+    }
+}
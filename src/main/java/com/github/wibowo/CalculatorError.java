@@ -0,0 +1,51 @@
+package com.github.wibowo;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Why a token of a command line could not be executed.
+ *
+ * Failures travel as these codes, along with the operator and its position, instead of exceptions, so that lines full
+ * of invalid input stay cheap: nothing is thrown, and the warning for user is only built by {@link #message}, when it
+ * is written to the output.
+ */
+enum CalculatorError {
+    InsufficientParameters("insufficient parameters"),
+    UnsupportedOperation("unsupported operation"),
+    /**
+     * Detail: name of the profile given by user
+     */
+    UnsupportedPrecision("unsupported precision [%s]"),
+    NoForkToRestore("no fork to restore"),
+    NothingToUndo("nothing to undo"),
+    DivisionByZero("operation execution failed due to: [/ by zero]"),
+    /**
+     * Detail: the negative {@link RealNumber}
+     */
+    SquareRootOfNegative("operation execution failed due to: [Illegal sqrt(x) for x < 0: x = %s]"),
+    /**
+     * Any other failure of an evaluation. Detail: message of the exception.
+     */
+    ExecutionFailed("operation execution failed due to: [%s]");
+
+    private final String template;
+
+    CalculatorError(final String template) {
+        this.template = template;
+    }
+
+    /**
+     * @param operator the token that failed
+     * @param position position of the token, as shown to user
+     * @param detail what the message of this error refers to, if any
+     * @return the warning for user
+     */
+    String message(final @NotNull String operator,
+                   final int position,
+                   final @Nullable Object detail) {
+        // numbers are shown with all their digits, not as displayed on the stack
+        final Object argument = detail instanceof RealNumber ? ((RealNumber) detail).eval() : detail;
+        return "operator " + operator + " (position: " + position + "): " + String.format(template, argument);
+    }
+}
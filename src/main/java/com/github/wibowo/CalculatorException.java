@@ -9,12 +9,13 @@ public class CalculatorException extends RuntimeException {
     }
 
     /**
-     * Indicates failure to convert the string number into a number
+     * Indicates failure to convert the string number into a number. Only thrown by the public API: the calculator
+     * itself checks its input without exceptions, see {@link RealNumber#parse(String)} and {@link CalculatorError}.
      * @param numberAsString String to be converted into number
      * @return instance of this exception
      */
     public static CalculatorException invalidNumber(final String numberAsString) {
-        return new CalculatorException(String.format("Unable to convert [%s] into a number.", numberAsString));
+        return new CalculatorException("Unable to convert [" + numberAsString + "] into a number.");
     }
 
     private CalculatorException(final String message) {
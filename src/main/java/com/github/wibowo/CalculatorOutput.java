@@ -0,0 +1,12 @@
+package com.github.wibowo;
+
+/**
+ * Destination of the messages produced while processing command lines, e.g. the stack after each line,
+ * and the warnings for operations that could not be executed.
+ */
+public interface CalculatorOutput {
+
+    void info(String message);
+
+    void warn(String message);
+}
@@ -0,0 +1,320 @@
+package com.github.wibowo;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * Serves calculator sessions over TCP, with a line based protocol: each line received is processed like a line typed
+ * in the interactive mode, and the messages that would be logged (warnings, then the stack) are sent back, one per
+ * line, in UTF-8.
+ *
+ * Each connection has its own {@link CalculatorSession}. All connections are served by the thread calling
+ * {@link #run()}, with a non-blocking {@link Selector}, so an idle connection costs only its session and a few small
+ * buffers. While replies are waiting to be sent, no more lines are read from that connection, so a client that does
+ * not read its replies can't make the server buffer an unbounded amount of output.
+ */
+public final class CalculatorServer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CalculatorServer.class);
+
+    /**
+     * Longer lines are rejected, and the connection is closed
+     */
+    static final int MAX_LINE_LENGTH = 1 << 16;
+
+    private static final int READ_BUFFER_SIZE = 1 << 13;
+
+    private final Selector selector;
+
+    private final ServerSocketChannel serverChannel;
+
+    private final int undoDepth;
+
+    /**
+     * Shared by all connections, since they are all read from the selector thread
+     */
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+    private volatile boolean running = true;
+
+    /**
+     * Only changed from the selector thread, but read from any thread
+     */
+    private volatile int connections;
+
+    /**
+     * @param address address to listen on
+     * @param undoDepth undo depth of each session, see {@link CalculatorSession#CalculatorSession(int)}
+     * @throws IOException if the address can't be bound
+     */
+    public CalculatorServer(final @NotNull InetSocketAddress address,
+                            final int undoDepth) throws IOException {
+        Objects.requireNonNull(address);
+        this.undoDepth = undoDepth;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(address);
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (final IOException exception) {
+            serverChannel.close();
+            selector.close();
+            throw exception;
+        }
+    }
+
+    /**
+     * @return port the server is listening on
+     */
+    public int port() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Serve connections until {@link #stop()} is called. All connections are closed before returning. A failure
+     * of one connection, including while it is accepted, only closes that connection.
+     *
+     * @throws IOException if the selector fails
+     */
+    public void run() throws IOException {
+        try {
+            while (running) {
+                selector.select();
+                final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        final Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                connection.read();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.write();
+                            }
+                        } catch (final IOException exception) {
+                            LOGGER.debug("Closing connection due to: [{}]", exception.getMessage());
+                            try {
+                                connection.close();
+                            } catch (final IOException closeFailure) {
+                                LOGGER.debug("Closing connection failed due to: [{}]", closeFailure.getMessage());
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            for (final SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        }
+    }
+
+    /**
+     * Ask {@link #run()} to return. Can be called from any thread.
+     */
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * @return number of connections currently open
+     */
+    public int connections() {
+        return connections;
+    }
+
+    /**
+     * Accept a pending connection. Failures, e.g. running out of file descriptors, or a client resetting the
+     * connection before it gets the banner, are logged, and the server keeps serving the other connections.
+     */
+    private void accept() {
+        final SocketChannel channel;
+        try {
+            channel = serverChannel.accept();
+        } catch (final IOException exception) {
+            LOGGER.warn("Accepting connection failed due to: [{}]", exception.getMessage());
+            return;
+        }
+        if (channel == null) {
+            return;
+        }
+        final Connection connection = new Connection(channel);
+        try {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            connections++;
+            connection.info(RPNCalculator.BANNER_MESSAGE);
+            connection.flush();
+        } catch (final IOException exception) {
+            LOGGER.warn("Closing new connection due to: [{}]", exception.getMessage());
+            try {
+                if (connection.key != null) {
+                    connection.close();
+                } else {
+                    channel.close();
+                }
+            } catch (final IOException closeFailure) {
+                LOGGER.debug("Closing connection failed due to: [{}]", closeFailure.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A client, with its own session
+     */
+    private final class Connection implements CalculatorOutput {
+        private final SocketChannel channel;
+
+        private final CalculatorSession session = new CalculatorSession(undoDepth, new RPNStack<>());
+
+        private SelectionKey key;
+
+        /**
+         * Bytes of the line being received, up to the next new line
+         */
+        private byte[] line = new byte[128];
+
+        private int lineLength;
+
+        /**
+         * Replies to the lines processed so far, not yet encoded
+         */
+        private final StringBuilder replies = new StringBuilder();
+
+        /**
+         * Encoded replies the channel did not accept yet. <code>null</code> when everything has been sent.
+         */
+        private ByteBuffer pendingOutput;
+
+        /**
+         * Set once the client has quit. The connection is closed once the replies have been sent.
+         */
+        private boolean closing;
+
+        private Connection(final SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        private void read() throws IOException {
+            readBuffer.clear();
+            final int read = channel.read(readBuffer);
+            if (read < 0) {
+                close();
+                return;
+            }
+            readBuffer.flip();
+            while (readBuffer.hasRemaining() && !closing) {
+                final byte next = readBuffer.get();
+                if (next == '\n') {
+                    processLine();
+                } else if (lineLength == MAX_LINE_LENGTH) {
+                    warn("Line is longer than " + MAX_LINE_LENGTH + " bytes");
+                    closing = true;
+                } else {
+                    if (lineLength == line.length) {
+                        line = Arrays.copyOf(line, Math.min(line.length * 2, MAX_LINE_LENGTH));
+                    }
+                    line[lineLength++] = next;
+                }
+            }
+            flush();
+        }
+
+        private void processLine() {
+            int length = lineLength;
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            final String command = new String(line, 0, length, StandardCharsets.UTF_8);
+            lineLength = 0;
+            if (command.trim().isEmpty()) {
+                return;
+            }
+            try {
+                if (session.processLine(command, this) == CommandExecutionStatus.Quit) {
+                    info("Exiting..");
+                    closing = true;
+                }
+            } catch (final RuntimeException exception) {
+                warn("Unable to process line due to: [" + exception + "]");
+            }
+            info(session.render());
+        }
+
+        /**
+         * Send the replies, or as much of them as the channel accepts without blocking
+         */
+        private void flush() throws IOException {
+            if (replies.length() > 0) {
+                final byte[] encoded = replies.toString().getBytes(StandardCharsets.UTF_8);
+                replies.setLength(0);
+                if (pendingOutput == null) {
+                    pendingOutput = ByteBuffer.wrap(encoded);
+                } else {
+                    final ByteBuffer merged = ByteBuffer.allocate(pendingOutput.remaining() + encoded.length);
+                    merged.put(pendingOutput).put(encoded).flip();
+                    pendingOutput = merged;
+                }
+            }
+            write();
+        }
+
+        private void write() throws IOException {
+            if (pendingOutput != null) {
+                channel.write(pendingOutput);
+                if (pendingOutput.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_WRITE);
+                    return;
+                }
+                pendingOutput = null;
+            }
+            if (closing) {
+                close();
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        private void close() throws IOException {
+            if (channel.isOpen()) {
+                connections--;
+                key.cancel();
+                channel.close();
+            }
+        }
+
+        @Override
+        public void info(final String message) {
+            replies.append(message).append('\n');
+        }
+
+        @Override
+        public void warn(final String message) {
+            replies.append(message).append('\n');
+        }
+    }
+}
@@ -0,0 +1,566 @@
+package com.github.wibowo;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A stack of {@link OperationExecution}, and the command lines executed against it.
+ *
+ * Each {@link OperationExecution} keeps the arguments it was computed from, so that it can be undone. To bound the
+ * memory used by long sessions, only the top {@link #undoDepth()} items keep them. Once a line has been executed,
+ * items below that horizon are compacted into a checkpoint: they are replaced by a {@link Operation#Push} of their
+ * result, so their arguments can be garbage collected. Undoing such an item only removes it from the stack.
+ *
+ * The <code>fork</code> command takes a {@link CalculatorStack#snapshot()} of the stack, and <code>restore</code> goes
+ * back to the stack of the last <code>fork</code>, forgetting that fork. The first fork switches the session over to
+ * a {@link CalculatorStack#persistent()} stack, so that the following ones cost only the items pushed after them.
+ * Sessions that never fork keep their stack, on which compacting an item is O(1).
+ *
+ * The stack shown to user after each line is rendered by a {@link StackRenderer}. The session tracks which items did
+ * not change since the last render, so that an incremental render only formats the others. The <code>print</code>
+ * command always shows the full stack.
+ *
+ * The arithmetic follows the {@link Precision} of the session, which the <code>precision</code> command switches.
+ * Numbers already on the stack are kept as they are.
+ *
+ * In deferred mode, additions are not computed when executed, but when their result is needed: to be shown, to be
+ * the argument of another operation, or to be compacted. A chain of additions is then computed at once, see {@link OperationExecution#deferred(Operation, List, Precision)}. Undo behaves the same, as
+ * deferred executions still know their arguments. Results may differ in the last digits from the ones computed
+ * operation by operation, since a chain is rounded only once.
+ *
+ * A token that fails records a {@link CalculatorError} instead of throwing, which is only turned into a warning once
+ * the line stops, so that invalid input costs little more than valid input. An operation that fails leaves the stack
+ * as it was, as its arguments are only popped once its result is computed. An operation lacking arguments is found
+ * before the line is executed, see {@link CompiledProgram#insufficientIndex(int)}.
+ *
+ * Lines, operations and stack sizes are recorded in {@link Metrics}, shown by the <code>stats</code> command. Lines,
+ * evaluations and rollbacks can also be recorded as Flight Recorder events, see {@link LineEvent}. Sessions that
+ * don't need them can turn them off: the first event created registers the event classes with the Flight Recorder,
+ * which takes longer than starting the rest of the calculator.
+ *
+ * Not thread safe.
+ */
+public final class CalculatorSession {
+
+    public static final int UNLIMITED_UNDO_DEPTH = -1;
+
+    /**
+     * Number of items that can be undone back into their arguments. Can be overridden with the
+     * <code>rpn.undo.depth</code> system property. Unlimited by default.
+     */
+    public static final int DEFAULT_UNDO_DEPTH = Integer.getInteger("rpn.undo.depth", UNLIMITED_UNDO_DEPTH);
+
+    /**
+     * System property overriding {@link #DEFAULT_RENDERER}
+     */
+    static final String RENDER_PROPERTY = "rpn.render";
+
+    /**
+     * Renderer of new sessions. Can be overridden with the <code>rpn.render</code> system property, see
+     * {@link StackRenderer#parse(String)}. An invalid value falls back to the full stack, so that no session fails
+     * to start: {@link RPNCalculator#main(String[])} reports it instead.
+     */
+    public static final StackRenderer DEFAULT_RENDERER = defaultRenderer();
+
+    /**
+     * Whether new sessions are in deferred mode. Can be enabled with the <code>rpn.deferred</code> system property.
+     */
+    public static final boolean DEFAULT_DEFERRED = Boolean.getBoolean("rpn.deferred");
+
+    /**
+     * Compiled command lines, shared by all sessions
+     */
+    static final ProgramCache PROGRAM_CACHE = new ProgramCache(ProgramCache.DEFAULT_CAPACITY);
+
+    private final int undoDepth;
+
+    private CalculatorStack<OperationExecution> operationExecutions;
+
+    /**
+     * Stacks remembered by <code>fork</code>, last one first
+     */
+    private final Deque<Fork> forks = new ArrayDeque<>();
+
+    /**
+     * Number of items, from the bottom of the stack, that are already compacted
+     */
+    private int checkpointSize;
+
+    private StackRenderer renderer = DEFAULT_RENDERER;
+
+    private Precision precision = Precision.DEFAULT;
+
+    private boolean deferred = DEFAULT_DEFERRED;
+
+    private Metrics metrics = Metrics.GLOBAL;
+
+    private boolean flightRecorderEvents = true;
+
+    /**
+     * Number of items, from the bottom of the stack, that did not change since the last render
+     */
+    private int renderedSize;
+
+    private static StackRenderer defaultRenderer() {
+        try {
+            return StackRenderer.parse(System.getProperty(RENDER_PROPERTY, "full"));
+        } catch (final IllegalArgumentException exception) {
+            return StackRenderer.FULL;
+        }
+    }
+
+    /**
+     * Why the last token failed, with the token and what the warning refers to, see {@link #fail}
+     */
+    private CalculatorError error;
+
+    private String errorOperator;
+
+    private int errorPosition;
+
+    private Object errorDetail;
+
+    public CalculatorSession() {
+        this(DEFAULT_UNDO_DEPTH);
+    }
+
+    /**
+     * @param undoDepth number of items, from the top of the stack, that keep their arguments.
+     *                  {@link #UNLIMITED_UNDO_DEPTH} to keep them all.
+     */
+    public CalculatorSession(final int undoDepth) {
+        this(undoDepth, new RPNStack<>());
+    }
+
+    /**
+     * @param undoDepth number of items, from the top of the stack, that keep their arguments.
+     *                  {@link #UNLIMITED_UNDO_DEPTH} to keep them all.
+     * @param operationExecutions the stack to work on
+     */
+    public CalculatorSession(final int undoDepth,
+                             final @NotNull CalculatorStack<OperationExecution> operationExecutions) {
+        if (undoDepth < UNLIMITED_UNDO_DEPTH) {
+            throw new IllegalArgumentException("Undo depth must not be negative. Received: " + undoDepth);
+        }
+        this.undoDepth = undoDepth;
+        this.operationExecutions = Objects.requireNonNull(operationExecutions);
+    }
+
+    public CalculatorStack<OperationExecution> stack() {
+        return operationExecutions;
+    }
+
+    public int undoDepth() {
+        return undoDepth;
+    }
+
+    /**
+     * @return number of items that still keep their arguments, i.e. that have not been compacted into the checkpoint
+     */
+    public int retainedHistorySize() {
+        return operationExecutions.size() - checkpointSize;
+    }
+
+    public void setRenderer(final @NotNull StackRenderer renderer) {
+        this.renderer = Objects.requireNonNull(renderer);
+    }
+
+    public Precision precision() {
+        return precision;
+    }
+
+    public void setPrecision(final @NotNull Precision precision) {
+        this.precision = Objects.requireNonNull(precision);
+    }
+
+    public boolean isDeferred() {
+        return deferred;
+    }
+
+    public void setDeferred(final boolean deferred) {
+        this.deferred = deferred;
+    }
+
+    public Metrics metrics() {
+        return metrics;
+    }
+
+    public void setMetrics(final @NotNull Metrics metrics) {
+        this.metrics = Objects.requireNonNull(metrics);
+    }
+
+    public boolean isFlightRecorderEvents() {
+        return flightRecorderEvents;
+    }
+
+    /**
+     * @param flightRecorderEvents <code>false</code> not to create any Flight Recorder event, so that their classes are
+     *                             not even loaded
+     */
+    public void setFlightRecorderEvents(final boolean flightRecorderEvents) {
+        this.flightRecorderEvents = flightRecorderEvents;
+    }
+
+    /**
+     * @return the stack, rendered by the renderer of this session
+     */
+    public String render() {
+        final String rendered = renderer.render(operationExecutions, Math.min(renderedSize, operationExecutions.size()));
+        renderedSize = operationExecutions.size();
+        return rendered;
+    }
+
+    /**
+     * @return number of forks that can be restored
+     */
+    public int forks() {
+        return forks.size();
+    }
+
+    /**
+     * Empty the stack, dropping all history and forks, and go back to the default precision
+     */
+    public void reset() {
+        operationExecutions.clear();
+        precision = Precision.DEFAULT;
+        checkpointSize = 0;
+        renderedSize = 0;
+        forks.clear();
+    }
+
+    /**
+     * @param line command line given by user
+     * @param output destination of the messages for user
+     * @return status of the last operation executed
+     */
+    public CommandExecutionStatus processLine(final @NotNull String line,
+                                              final @NotNull CalculatorOutput output) {
+        return execute(PROGRAM_CACHE.compile(line), output);
+    }
+
+    CommandExecutionStatus execute(final @NotNull CompiledProgram program,
+                                   final @NotNull CalculatorOutput output) {
+        Objects.requireNonNull(program);
+        Objects.requireNonNull(output);
+        final long startTime = System.nanoTime();
+        final LineEvent event = flightRecorderEvents ? new LineEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        CommandExecutionStatus status = null;
+        try {
+            status = interpret(program, output);
+            return status;
+        } finally {
+            compact();
+            metrics.recordLine(program.size(), System.nanoTime() - startTime);
+            metrics.recordStack(operationExecutions.size(), retainedHistorySize());
+            if (event != null) {
+                event.commit(program, status, operationExecutions.size());
+            }
+        }
+    }
+
+    /**
+     * Compact the items that fell below the undo horizon. Items that were compacted before, and not popped since,
+     * are skipped, so each item is compacted at most once. Compacted items are rendered the same way, so they are
+     * not considered as changed.
+     */
+    private void compact() {
+        checkpointSize = Math.min(checkpointSize, operationExecutions.lowWaterMark());
+        renderedSize = Math.min(renderedSize, operationExecutions.lowWaterMark());
+        operationExecutions.resetLowWaterMark();
+        if (undoDepth == UNLIMITED_UNDO_DEPTH) {
+            return;
+        }
+        final int horizon = operationExecutions.size() - undoDepth;
+        for (; checkpointSize < horizon; checkpointSize++) {
+            final OperationExecution operationExecution = operationExecutions.get(checkpointSize);
+            if (operationExecution.getOperation() != Operation.Push) {
+                operationExecutions.set(checkpointSize, new OperationExecution(Operation.Push, operationExecution.getResult()));
+            }
+        }
+    }
+
+    private CommandExecutionStatus interpret(final CompiledProgram program,
+                                             final CalculatorOutput output) {
+        // known before executing anything: the operations before it are executed, as if it was found when reached
+        final int insufficientIndex = program.insufficientIndex(operationExecutions.size());
+
+        // the evaluator computes operation by operation, which would round chains differently than deferred mode
+        final StraightLineEvaluator evaluator = insufficientIndex >= 0 || (deferred && precision.isDeferrable())
+                ? null
+                : program.evaluator(StraightLineEvaluator.DEFAULT_THRESHOLD);
+        if (evaluator != null && evaluator.execute(operationExecutions, precision)) {
+            evaluator.recordInvocations(metrics);
+            return CommandExecutionStatus.Success;
+        }
+
+        final int end = insufficientIndex >= 0 ? insufficientIndex : program.size();
+        CommandExecutionStatus currentStatus = CommandExecutionStatus.Success;
+        for (int i = 0; i < end; i++) {
+            final Operation operation = program.operation(i);
+            if (operation == Operation.Push) {
+                metrics.recordInvocation(operation);
+                operationExecutions.push(new OperationExecution(operation, precision.round(program.constant(i))));
+            } else if (operation == Operation.Clear) {
+                currentStatus = performClear();
+            } else if (operation == Operation.Undo) {
+                currentStatus = performUndo(program.position(i));
+            } else if (operation == Operation.Fork) {
+                currentStatus = performFork();
+            } else if (operation == Operation.Restore) {
+                currentStatus = performRestore(program.position(i));
+            } else if (operation == Operation.UnsupportedOperation ) {
+                metrics.recordParseError();
+                output.warn(CalculatorError.UnsupportedOperation.message(program.operand(i), program.offset(i), null));
+            } else if (operation == Operation.SwitchPrecision) {
+                currentStatus = performSwitchPrecision(program.operand(i), program.position(i), output);
+            } else if (operation == Operation.Print) {
+                output.info(operationExecutions.toString());
+            } else if (operation == Operation.Stats) {
+                for (final String line : metrics.report()) {
+                    output.info(line);
+                }
+                output.info(PROGRAM_CACHE.toString());
+                if (NumericLiteral.CACHE.isEnabled()) {
+                    output.info(NumericLiteral.CACHE.toString());
+                }
+            } else if (operation == Operation.Help) {
+                output.info("Supported operations are: " + Operation.dictionary().keySet());
+            } else if (operation == Operation.Quit) {
+                return CommandExecutionStatus.Quit;
+            } else if (operation.isReduction()) {
+                currentStatus = performReduction(operation, program.count(i), program.position(i));
+            } else {
+                currentStatus = performOperation(operation, program.position(i));
+            }
+
+            // short circuit : when current operation fail, dont try to process the remaining of the operations
+            if (currentStatus == CommandExecutionStatus.Failed) {
+                output.warn(error.message(errorOperator, errorPosition, errorDetail));
+                return currentStatus;
+            }
+        }
+        if (insufficientIndex >= 0) {
+            fail(CalculatorError.InsufficientParameters, program.operation(insufficientIndex).command(), program.position(insufficientIndex), null);
+            output.warn(error.message(errorOperator, errorPosition, errorDetail));
+            return CommandExecutionStatus.Failed;
+        }
+        return currentStatus;
+    }
+
+    private CommandExecutionStatus performClear() {
+        operationExecutions.clear();
+        return CommandExecutionStatus.Success;
+    }
+
+    private CommandExecutionStatus performFork() {
+        operationExecutions = operationExecutions.persistent();
+        forks.push(new Fork(operationExecutions.snapshot(), Math.min(checkpointSize, operationExecutions.lowWaterMark())));
+        return CommandExecutionStatus.Success;
+    }
+
+    private CommandExecutionStatus performRestore(final int operationPosition) {
+        final Fork fork = forks.poll();
+        if (fork == null) {
+            return fail(CalculatorError.NoForkToRestore, Operation.Restore.command(), operationPosition, null);
+        }
+        operationExecutions = fork.operationExecutions;
+        checkpointSize = fork.checkpointSize;
+        renderedSize = 0;
+        return CommandExecutionStatus.Success;
+    }
+
+    private CommandExecutionStatus performSwitchPrecision(final String profileName,
+                                                          final int operationPosition,
+                                                          final CalculatorOutput output) {
+        if (profileName == null) {
+            output.info(Operation.SwitchPrecision.command() + ": " + precision);
+            return CommandExecutionStatus.Success;
+        }
+        final Precision newPrecision = Precision.find(profileName);
+        if (newPrecision == null) {
+            return fail(CalculatorError.UnsupportedPrecision, Operation.SwitchPrecision.command(), operationPosition, profileName);
+        }
+        precision = newPrecision;
+        return CommandExecutionStatus.Success;
+    }
+
+    private CommandExecutionStatus performOperation(final Operation operation,
+                                                    final int operationPosition) {
+        if (operationExecutions.size() < operation.numArguments) {
+            return fail(CalculatorError.InsufficientParameters, operation.command(), operationPosition, null);
+        } else if (deferred && operation.isAssociative() && precision.isDeferrable()) {
+            final List<OperationExecution> operands = new ArrayList<>(operation.numArguments);
+            for (int depth = 0; depth < operation.numArguments; depth++) {
+                operands.add(operationExecutions.peek(depth));
+            }
+            operationExecutions.pop(operation.numArguments);
+            metrics.recordInvocation(operation);
+            operationExecutions.push(OperationExecution.deferred(operation, operands, precision));
+            return CommandExecutionStatus.Success;
+        } else {
+            final List<RealNumber> arguments = new ArrayList<>(operation.numArguments);
+            for (int depth = 0; depth < operation.numArguments; depth++) {
+                arguments.add(operationExecutions.peek(depth).getResult());
+            }
+            return pushExecution(operation, arguments, operationPosition);
+        }
+    }
+
+    /**
+     * Reduce the top items into one, as a single step to undo
+     *
+     * @param count number of items to reduce, 0 for the whole stack
+     */
+    private CommandExecutionStatus performReduction(final Operation operation,
+                                                    final int count,
+                                                    final int operationPosition) {
+        final int items = count == 0 ? operationExecutions.size() : count;
+        if (items == 0 || operationExecutions.size() < items) {
+            return fail(CalculatorError.InsufficientParameters, operation.command(), operationPosition, null);
+        }
+        final List<RealNumber> arguments = new ArrayList<>(items);
+        operationExecutions.forEach(operationExecutions.size() - items, operationExecution -> arguments.add(operationExecution.getResult()));
+        // FIRST_ARG first, i.e. top of the stack first
+        Collections.reverse(arguments);
+        return pushExecution(operation, arguments, operationPosition);
+    }
+
+    /**
+     * Replace the arguments, still on top of the stack, by the result of the operation. If it fails, the stack is left
+     * as it was, so there is nothing to roll back.
+     */
+    private CommandExecutionStatus pushExecution(final Operation operation,
+                                                 final List<RealNumber> arguments,
+                                                 final int operationPosition) {
+        metrics.recordInvocation(operation);
+        final long startTime = System.nanoTime();
+        final EvaluationEvent event = flightRecorderEvents ? new EvaluationEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        final CalculatorError domainError = operation.domainError(arguments);
+        if (domainError != null) {
+            commit(event, operation, arguments, true);
+            return abort(operation, arguments, domainError, operationPosition, arguments.get(0));
+        }
+        final OperationExecution operationExecution;
+        try {
+            operationExecution = new OperationExecution(operation, arguments, precision);
+        } catch (final Exception exception) {
+            // failures that can't be told before evaluating, e.g. an overflow in Binary64
+            commit(event, operation, arguments, true);
+            return abort(operation, arguments, CalculatorError.ExecutionFailed, operationPosition, exception.getMessage());
+        }
+        metrics.recordEvaluation(operation, System.nanoTime() - startTime);
+        commit(event, operation, arguments, false);
+        operationExecutions.pop(arguments.size());
+        operationExecutions.push(operationExecution);
+        return CommandExecutionStatus.Success;
+    }
+
+    private void commit(final @Nullable EvaluationEvent event,
+                        final Operation operation,
+                        final List<RealNumber> arguments,
+                        final boolean failed) {
+        if (event != null) {
+            event.commit(operation, arguments, precision, failed);
+        }
+    }
+
+    /**
+     * Give up an operation that failed, whose arguments are still on the stack
+     */
+    private CommandExecutionStatus abort(final Operation operation,
+                                         final List<RealNumber> arguments,
+                                         final CalculatorError error,
+                                         final int operationPosition,
+                                         final Object detail) {
+        metrics.recordFailure(operation);
+        metrics.recordRollback(operation);
+        if (flightRecorderEvents) {
+            new RollbackEvent().commit(operation, RollbackEvent.FAILURE, arguments.size());
+        }
+        return fail(error, operation.command(), operationPosition, detail);
+    }
+
+    private CommandExecutionStatus performUndo(final int operationPosition) {
+        if (operationExecutions.size() == 0) {
+            return fail(CalculatorError.NothingToUndo, Operation.Undo.command(), operationPosition, null);
+        }
+        final OperationExecution pop = operationExecutions.pop();
+        if (pop.getOperation().pushArgumentsOnUndo) {
+            final List<RealNumber> arguments = pop.getArguments();
+            rollback(arguments);
+            metrics.recordRollback(pop.getOperation());
+            if (flightRecorderEvents) {
+                new RollbackEvent().commit(pop.getOperation(), RollbackEvent.UNDO, arguments.size());
+            }
+        } else if (flightRecorderEvents) {
+            new RollbackEvent().commit(pop.getOperation(), RollbackEvent.UNDO, 0);
+        }
+        return CommandExecutionStatus.Success;
+    }
+
+    private void rollback(final List<RealNumber> arguments) {
+        for (int i = arguments.size()-1; i >= 0; i--) {
+            operationExecutions.push(new OperationExecution(Operation.Push, arguments.get(i)));
+        }
+    }
+
+    /**
+     * Record why the current token failed, to be reported once the line stops
+     *
+     * @return {@link CommandExecutionStatus#Failed}
+     */
+    private CommandExecutionStatus fail(final CalculatorError error,
+                                        final String operator,
+                                        final int operationPosition,
+                                        final Object detail) {
+        this.error = error;
+        this.errorOperator = operator;
+        this.errorPosition = operationPosition;
+        this.errorDetail = detail;
+        return CommandExecutionStatus.Failed;
+    }
+
+    /**
+     * @return why the last failed token failed, <code>null</code> if none failed yet
+     */
+    @Nullable CalculatorError lastError() {
+        return error;
+    }
+
+    /**
+     * @return position of the last failed token, as shown to user
+     */
+    int lastErrorPosition() {
+        return errorPosition;
+    }
+
+    @Override
+    public String toString() {
+        return operationExecutions.toString();
+    }
+
+    private static final class Fork {
+        private final CalculatorStack<OperationExecution> operationExecutions;
+
+        private final int checkpointSize;
+
+        private Fork(final CalculatorStack<OperationExecution> operationExecutions,
+                     final int checkpointSize) {
+            this.operationExecutions = operationExecutions;
+            this.checkpointSize = checkpointSize;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.wibowo;
+
+import java.util.EmptyStackException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Stack used by {@link CalculatorSession}.
+ *
+ * @see RPNStack
+ * @see PersistentRPNStack
+ * @param <E> the type of elements held in this collection
+ */
+public interface CalculatorStack<E> {
+
+    CalculatorStack<E> push(E item);
+
+    E pop() throws EmptyStackException;
+
+    /**
+     * Pop the top <code>count</code> items, top of the stack first.
+     *
+     * The returned list is only valid until this stack is modified again, so copy whatever needs to be kept.
+     *
+     * @param count number of items to pop
+     * @return popped items, where the item at index 0 was the top of the stack
+     */
+    List<E> pop(int count) throws IllegalStateException, EmptyStackException;
+
+    /**
+     * Read an item without removing it from the stack.
+     *
+     * @param depth 0 for the top of the stack, 1 for the item below it, and so on
+     * @return item at the given depth
+     */
+    E peek(int depth) throws EmptyStackException, IllegalStateException;
+
+    /**
+     * Read an item without removing it from the stack.
+     *
+     * @param index 0 for the bottom of the stack, 1 for the item above it, and so on
+     * @return item at the given index
+     */
+    E get(int index) throws IllegalStateException;
+
+    /**
+     * Replace an item, without changing the size of the stack.
+     *
+     * @param index 0 for the bottom of the stack, 1 for the item above it, and so on
+     * @param item the new item
+     */
+    void set(int index, E item) throws IllegalStateException;
+
+    int size();
+
+    /**
+     * Visit the items from the given index up to the top of the stack, bottom first
+     *
+     * @param from index of the first item to visit, 0 for the bottom of the stack
+     * @param action action to perform on each item
+     */
+    void forEach(int from, Consumer<? super E> action) throws IllegalStateException;
+
+    void clear();
+
+    /**
+     * @return lowest size of this stack since the last call to {@link #resetLowWaterMark()}. The items below it are
+     * the same as they were back then.
+     */
+    int lowWaterMark();
+
+    /**
+     * Start tracking the lowest size again from the current size
+     */
+    void resetLowWaterMark();
+
+    /**
+     * @return a stack holding the same items as this one. Changes made to either stack afterwards are not visible in
+     * the other.
+     */
+    CalculatorStack<E> snapshot();
+
+    /**
+     * @return a stack holding the same items as this one, with the same low water mark, whose {@link #snapshot()} is
+     * O(1). It is this stack if its snapshots already are. Otherwise this stack should not be used anymore.
+     */
+    CalculatorStack<E> persistent();
+}
@@ -0,0 +1,275 @@
+package com.github.wibowo;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Command line given by user, compiled into the sequence of {@link Operation} to be executed, with the numbers
+ * already parsed. Executing the program does not require tokenizing or parsing the line again.
+ *
+ * Instances are immutable, so they can be cached and shared between threads. The only exception is the count of
+ * executions, used to decide when the program is worth a {@link StraightLineEvaluator}. It is updated without
+ * synchronization, as missing a few executions does no harm.
+ *
+ * @see ProgramCache
+ */
+public final class CompiledProgram {
+
+    private final String line;
+
+    private final Operation[] operations;
+
+    /**
+     * Number to push for {@link Operation#Push}, <code>null</code> for other operations
+     */
+    private final RealNumber[] constants;
+
+    /**
+     * Offset of each token in the original line, 0-based
+     */
+    private final int[] offsets;
+
+    /**
+     * The token itself for {@link Operation#UnsupportedOperation}, to be reported back to user, and the token
+     * following {@link Operation#SwitchPrecision}, i.e. the name of the profile. <code>null</code> otherwise.
+     */
+    private final String[] operands;
+
+    /**
+     * Number of items reduced by a reduction, e.g. 3 for <code>sum:3</code>. 0 to reduce the whole stack, and for
+     * other operations.
+     */
+    private final int[] counts;
+
+    /**
+     * Stack depth the line needs when it starts, for each operation to find its arguments, e.g. 1 for the
+     * <code>+</code> of <code>1 +</code>. Never decreases, and is {@link Integer#MAX_VALUE} from the first operation
+     * that can't find them whatever the depth, e.g. the <code>+</code> of <code>clear +</code>. Only covers the
+     * operations before the first one whose effect on the depth is only known when executed, e.g. <code>undo</code>.
+     */
+    private final int[] requiredDepths;
+
+    private int executions;
+
+    private volatile StraightLineEvaluator evaluator;
+
+    private volatile boolean specialized;
+
+    private CompiledProgram(final String line,
+                            final Operation[] operations,
+                            final RealNumber[] constants,
+                            final int[] offsets,
+                            final String[] operands,
+                            final int[] counts) {
+        this.line = line;
+        this.operations = operations;
+        this.constants = constants;
+        this.offsets = offsets;
+        this.operands = operands;
+        this.counts = counts;
+        this.requiredDepths = requiredDepths(operations, counts);
+    }
+
+    private static int[] requiredDepths(final Operation[] operations,
+                                        final int[] counts) {
+        final int[] requiredDepths = new int[operations.length];
+        int requiredDepth = 0;
+        // depth reached so far, relative to the depth the line starts with, until it no longer depends on it
+        int depth = 0;
+        boolean absolute = false;
+        int i = 0;
+        for (; i < operations.length; i++) {
+            final Operation operation = operations[i];
+            if (operation == Operation.Undo || operation == Operation.Restore || operation == Operation.Quit) {
+                break;
+            }
+            final int arguments = operation == Operation.Push ? 0
+                    : operation.isReduction() ? Math.max(counts[i], 1)
+                    : operation.numArguments;
+            if (arguments > depth) {
+                requiredDepth = absolute ? Integer.MAX_VALUE : Math.max(requiredDepth, arguments - depth);
+            }
+            requiredDepths[i] = requiredDepth;
+
+            if (operation == Operation.Push) {
+                depth++;
+            } else if (operation == Operation.Clear) {
+                depth = 0;
+                absolute = true;
+            } else if (operation.isReduction() && counts[i] == 0) {
+                depth = 1;
+                absolute = true;
+            } else if (arguments > 0) {
+                depth += 1 - arguments;
+            }
+        }
+        return i == operations.length ? requiredDepths : Arrays.copyOf(requiredDepths, i);
+    }
+
+    /**
+     * @param line command line given by user
+     * @return the compiled program
+     */
+    public static CompiledProgram compile(final @NotNull String line) {
+        Objects.requireNonNull(line);
+        final TokenizedLine tokens = TokenizedLine.tokenize(line);
+        final int size = tokens.size();
+        final Operation[] operations = new Operation[size];
+        final RealNumber[] constants = new RealNumber[size];
+        final int[] offsets = new int[size];
+        final String[] operands = new String[size];
+        final int[] counts = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++, count++) {
+            offsets[count] = tokens.start(i);
+            final RealNumber number = NumericLiteral.parse(line, tokens.start(i), tokens.end(i));
+            if (number != null) {
+                operations[count] = Operation.Push;
+                constants[count] = number;
+            } else {
+                final String token = tokens.token(i);
+                operations[count] = Operation.findOperation(token);
+                if (operations[count] == Operation.UnsupportedOperation) {
+                    final int separator = token.indexOf(Operation.COUNT_SEPARATOR);
+                    final Operation reduction = separator > 0
+                            ? Operation.findOperation(token.substring(0, separator))
+                            : Operation.UnsupportedOperation;
+                    final int items = reduction.isReduction() ? parseCount(token.substring(separator + 1)) : 0;
+                    if (items > 0) {
+                        operations[count] = reduction;
+                        counts[count] = items;
+                    } else {
+                        operands[count] = token;
+                    }
+                } else if (operations[count] == Operation.SwitchPrecision && i + 1 < size) {
+                    operands[count] = tokens.token(++i);
+                }
+            }
+        }
+        if (count < size) {
+            return new CompiledProgram(line, Arrays.copyOf(operations, count), Arrays.copyOf(constants, count),
+                    Arrays.copyOf(offsets, count), Arrays.copyOf(operands, count), Arrays.copyOf(counts, count));
+        }
+        return new CompiledProgram(line, operations, constants, offsets, operands, counts);
+    }
+
+    /**
+     * @return the number of items to reduce, or 0 if it is not a positive number
+     */
+    private static int parseCount(final String count) {
+        // scanned rather than Integer.parseInt, not to throw on invalid tokens
+        final int start = count.startsWith("+") ? 1 : 0;
+        if (start == count.length()) {
+            return 0;
+        }
+        long items = 0;
+        for (int i = start; i < count.length(); i++) {
+            final char digit = count.charAt(i);
+            if (digit < '0' || digit > '9') {
+                return 0;
+            }
+            items = items * 10 + (digit - '0');
+            if (items > Integer.MAX_VALUE) {
+                return 0;
+            }
+        }
+        return (int) items;
+    }
+
+    public String line() {
+        return line;
+    }
+
+    /**
+     * @return number of operations in the program
+     */
+    public int size() {
+        return operations.length;
+    }
+
+    public Operation operation(final int index) {
+        return operations[index];
+    }
+
+    /**
+     * @return number pushed by the operation at the given index, if it is {@link Operation#Push}
+     */
+    public RealNumber constant(final int index) {
+        return constants[index];
+    }
+
+    /**
+     * @return string index of the operation in the original line, 0-based
+     */
+    public int offset(final int index) {
+        return offsets[index];
+    }
+
+    /**
+     * @return string index of the operation in the original line, 1-based
+     */
+    public int position(final int index) {
+        return offsets[index] + 1;
+    }
+
+    /**
+     * @return the token given by user, if the operation at the given index is {@link Operation#UnsupportedOperation},
+     * the name of the profile if it is {@link Operation#SwitchPrecision} followed by one, <code>null</code> otherwise
+     */
+    public @Nullable String operand(final int index) {
+        return operands[index];
+    }
+
+    /**
+     * @return number of items reduced by the operation at the given index, if it is a reduction. 0 to reduce the
+     * whole stack.
+     */
+    public int count(final int index) {
+        return counts[index];
+    }
+
+    /**
+     * Find the operation that will lack arguments, before executing anything. Operations after one whose effect on
+     * the depth is only known when executed, e.g. <code>undo</code>, are not checked.
+     *
+     * @param depth stack depth when the line starts
+     * @return index of the first operation that will not find enough arguments on the stack, -1 if none
+     */
+    int insufficientIndex(final int depth) {
+        // first index whose required depth is more than the depth, as they never decrease
+        int low = 0;
+        int high = requiredDepths.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (requiredDepths[middle] > depth) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low == requiredDepths.length ? -1 : low;
+    }
+
+    /**
+     * Record an execution of this program, and build its {@link StraightLineEvaluator} once it has been executed
+     * the given number of times.
+     *
+     * @param threshold number of executions before the evaluator is built. Negative to never build it.
+     * @return the evaluator, or <code>null</code> if the program is not executed often enough yet, or can't be
+     * specialized
+     */
+    @Nullable StraightLineEvaluator evaluator(final int threshold) {
+        if (specialized) {
+            return evaluator;
+        }
+        if (threshold < 0 || ++executions < threshold) {
+            return null;
+        }
+        evaluator = StraightLineEvaluator.of(this);
+        specialized = true;
+        return evaluator;
+    }
+}
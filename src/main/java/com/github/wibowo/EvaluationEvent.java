@@ -0,0 +1,75 @@
+package com.github.wibowo;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Flight Recorder event for each {@link Operation} evaluated by a {@link CalculatorSession}, with the size of its
+ * operands, to tell which inputs make e.g. {@link Operation#Sqrt} or {@link Operation#Divide} expensive.
+ *
+ * Disabled by default, like {@link LineEvent}. Operations of a program run by a {@link StraightLineEvaluator}, and
+ * chains computed in deferred mode, are not recorded one by one.
+ */
+@Name("com.github.wibowo.Evaluation")
+@Label("Evaluation")
+@Description("Operation evaluated by a calculator session")
+@Category("RPN Calculator")
+@Enabled(false)
+@StackTrace(false)
+final class EvaluationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Precision")
+    String precision;
+
+    @Label("Operands")
+    int operands;
+
+    @Label("Magnitude")
+    @Description("Largest number of integer digits among the operands")
+    int magnitude;
+
+    @Label("Scale")
+    @Description("Largest number of fraction digits among the operands")
+    int scale;
+
+    @Label("Failed")
+    boolean failed;
+
+    /**
+     * End the event, and commit it if it is enabled and lasted longer than its threshold
+     */
+    void commit(final @NotNull Operation operation,
+                final @NotNull List<RealNumber> arguments,
+                final @NotNull Precision precision,
+                final boolean failed) {
+        end();
+        if (shouldCommit()) {
+            this.operation = operation.name();
+            this.precision = precision.profileName();
+            this.operands = arguments.size();
+            int magnitude = 0;
+            int scale = 0;
+            for (final RealNumber argument : arguments) {
+                final BigDecimal value = argument.eval();
+                magnitude = Math.max(magnitude, value.precision() - value.scale());
+                scale = Math.max(scale, value.scale());
+            }
+            this.magnitude = magnitude;
+            this.scale = scale;
+            this.failed = failed;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.github.wibowo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of records, written through a memory mapped window. Records are encoded straight into the window:
+ * they reach the disk when {@link #force()} is called, or when the operating system writes the pages back.
+ *
+ * A record is its length, the CRC32 of its body, and its body. The length is written last, so a record whose length
+ * can be read is complete, unless the process died before the pages were written back. That is caught by the CRC:
+ * reading stops at the first record with no length, or whose CRC does not match, and the file is truncated there.
+ *
+ * The window is {@link #chunkSize} bytes, and is moved forward, growing the file, when a record does not fit.
+ */
+final class JournalFile implements Closeable {
+
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    private final FileChannel channel;
+
+    private final long chunkSize;
+
+    private final CRC32 crc = new CRC32();
+
+    private MappedByteBuffer window;
+
+    /**
+     * Offset of {@link #window} in the file
+     */
+    private long windowPosition;
+
+    private int records;
+
+    private JournalFile(final FileChannel channel,
+                        final long chunkSize,
+                        final long position) throws IOException {
+        this.channel = channel;
+        this.chunkSize = chunkSize;
+        map(position, 0);
+    }
+
+    /**
+     * Open a journal, creating it if it does not exist, and read the records it holds
+     *
+     * @param path path of the journal
+     * @param chunkSize size of the memory mapped window
+     * @param replay called with the body of each record, in order
+     * @return the journal, positioned after its last valid record
+     * @throws IOException if the file can't be read or mapped
+     */
+    static JournalFile open(final Path path,
+                            final long chunkSize,
+                            final Consumer<ByteBuffer> replay) throws IOException {
+        final FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(String.format("Journal %s is larger than %d bytes", path, Integer.MAX_VALUE));
+            }
+            int records = 0;
+            int end = 0;
+            if (size > 0) {
+                final MappedByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                final CRC32 crc = new CRC32();
+                while (end + HEADER_SIZE <= size) {
+                    final int length = content.getInt(end);
+                    if (length <= 0 || length > size - end - HEADER_SIZE) {
+                        break;
+                    }
+                    final ByteBuffer body = slice(content, end + HEADER_SIZE, length);
+                    crc.reset();
+                    crc.update(body.duplicate());
+                    if ((int) crc.getValue() != content.getInt(end + Integer.BYTES)) {
+                        break;
+                    }
+                    replay.accept(body);
+                    records++;
+                    end += HEADER_SIZE + length;
+                }
+                // drop the torn record, if any, and the unused part of the last window
+                channel.truncate(end);
+            }
+            final JournalFile journal = new JournalFile(channel, chunkSize, end);
+            journal.records = records;
+            return journal;
+        } catch (final IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    private static ByteBuffer slice(final ByteBuffer buffer,
+                                    final int position,
+                                    final int length) {
+        final ByteBuffer slice = buffer.duplicate();
+        slice.position(position);
+        slice.limit(position + length);
+        return slice.slice();
+    }
+
+    /**
+     * Append a record, encoded straight into the window
+     *
+     * @param length length of the body
+     * @param body writes the body into the buffer it is given, which has exactly <code>length</code> bytes remaining
+     * @throws IOException if the window can't be moved forward
+     * @throws IllegalStateException if the body does not fill the buffer
+     */
+    synchronized void append(final int length,
+                             final Consumer<ByteBuffer> body) throws IOException {
+        if (window.remaining() < HEADER_SIZE + length) {
+            map(windowPosition + window.position(), HEADER_SIZE + length);
+        }
+        final int start = window.position();
+        final ByteBuffer bodyBuffer = slice(window, start + HEADER_SIZE, length);
+        body.accept(bodyBuffer);
+        if (bodyBuffer.hasRemaining()) {
+            throw new IllegalStateException(String.format("Record body is %d bytes instead of %d",
+                    bodyBuffer.position(), length));
+        }
+        bodyBuffer.flip();
+        crc.reset();
+        crc.update(bodyBuffer);
+        window.putInt(start + Integer.BYTES, (int) crc.getValue());
+        window.putInt(start, length);
+        window.position(start + HEADER_SIZE + length);
+        records++;
+    }
+
+    /**
+     * Move the window to the given position, forcing the previous one first
+     *
+     * @param minimumSize bytes needed in the new window
+     */
+    private void map(final long position,
+                     final int minimumSize) throws IOException {
+        if (window != null) {
+            window.force();
+        }
+        window = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.max(chunkSize, minimumSize));
+        windowPosition = position;
+    }
+
+    /**
+     * Write the records appended so far to the disk
+     */
+    synchronized void force() {
+        window.force();
+    }
+
+    /**
+     * @return number of bytes used by the records
+     */
+    synchronized long size() {
+        return windowPosition + window.position();
+    }
+
+    /**
+     * @return number of records, including those read when opened
+     */
+    synchronized int records() {
+        return records;
+    }
+
+    /**
+     * Force the records, and shrink the file to them
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            window.force();
+            channel.truncate(windowPosition + window.position());
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.github.wibowo;
+
+import java.util.EmptyStackException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Stack whose changes are written to the journal of a {@link SessionStore}. Changes are not written one by one: when
+ * {@link CalculatorSession} is done with a line, it calls {@link #resetLowWaterMark()}, and the items above the
+ * {@link #lowWaterMark()}, i.e. those that changed during the line, are written as one record.
+ *
+ * A {@link #snapshot()} is journaled by the same store. Only the stack the session works on, the last one to reach
+ * the end of a line, is journaled: forks are not persisted.
+ */
+final class JournaledStack implements CalculatorStack<OperationExecution> {
+
+    private final SessionStore store;
+
+    private CalculatorStack<OperationExecution> delegate;
+
+    JournaledStack(final SessionStore store,
+                   final CalculatorStack<OperationExecution> delegate) {
+        this.store = store;
+        this.delegate = delegate;
+    }
+
+    CalculatorStack<OperationExecution> delegate() {
+        return delegate;
+    }
+
+    @Override
+    public JournaledStack push(final OperationExecution item) {
+        delegate.push(item);
+        return this;
+    }
+
+    @Override
+    public OperationExecution pop() throws EmptyStackException {
+        return delegate.pop();
+    }
+
+    @Override
+    public List<OperationExecution> pop(final int count) throws IllegalStateException, EmptyStackException {
+        return delegate.pop(count);
+    }
+
+    @Override
+    public OperationExecution peek(final int depth) throws EmptyStackException, IllegalStateException {
+        return delegate.peek(depth);
+    }
+
+    @Override
+    public OperationExecution get(final int index) throws IllegalStateException {
+        return delegate.get(index);
+    }
+
+    /**
+     * Not journaled: items are only replaced by {@link CalculatorSession} to compact them, which keeps their result
+     */
+    @Override
+    public void set(final int index, final OperationExecution item) throws IllegalStateException {
+        delegate.set(index, item);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void forEach(final int from, final Consumer<? super OperationExecution> action) throws IllegalStateException {
+        delegate.forEach(from, action);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public int lowWaterMark() {
+        return delegate.lowWaterMark();
+    }
+
+    /**
+     * Journal the items changed since the last call, then start tracking changes again
+     */
+    @Override
+    public void resetLowWaterMark() {
+        store.journal(this);
+        delegate.resetLowWaterMark();
+    }
+
+    @Override
+    public JournaledStack snapshot() {
+        return new JournaledStack(store, delegate.snapshot());
+    }
+
+    /**
+     * Switches this stack over to a persistent copy of its items, so that the store keeps journaling it as the same
+     * stack rather than writing it whole again
+     */
+    @Override
+    public JournaledStack persistent() {
+        delegate = delegate.persistent();
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.wibowo;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations, in nanoseconds, with one bucket per power of 2: bucket <code>b</code> counts the durations
+ * from <code>2^(b-1)</code> to <code>2^b - 1</code>. Percentiles are reported as the upper bound of their bucket, so
+ * they are at most twice the actual value, and never more than the maximum.
+ *
+ * Recording does not allocate, once a bucket has been used by the recording threads, and does not lock.
+ */
+final class LatencyHistogram {
+
+    private static final int BUCKETS = Long.SIZE + 1;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param nanos duration to record. Negative durations, from a clock going backwards, are recorded as 0.
+     */
+    void record(final long nanos) {
+        final long duration = Math.max(nanos, 0);
+        buckets[Long.SIZE - Long.numberOfLeadingZeros(duration)].increment();
+        totalNanos.add(duration);
+        maxNanos.accumulate(duration);
+    }
+
+    /**
+     * @return number of durations recorded
+     */
+    long count() {
+        long count = 0;
+        for (final LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @return mean duration, 0 if nothing was recorded
+     */
+    double meanNanos() {
+        final long count = count();
+        return count == 0 ? 0 : (double) totalNanos.sum() / count;
+    }
+
+    long maxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return upper bound of the bucket holding the given percentile, at most the maximum, 0 if nothing was recorded
+     */
+    long percentileNanos(final double percentile) {
+        final long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            count += counts[i];
+        }
+        final long rank = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                final long upperBound = i == 0 ? 0 : i == Long.SIZE ? Long.MAX_VALUE : (1L << i) - 1;
+                return Math.min(upperBound, maxNanos());
+            }
+        }
+        return 0;
+    }
+}
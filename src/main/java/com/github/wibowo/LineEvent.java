@@ -0,0 +1,55 @@
+package com.github.wibowo;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Flight Recorder event for each command line executed by a {@link CalculatorSession}.
+ *
+ * Disabled by default, see the <code>jfr/rpn.jfc</code> settings. While disabled, the event is never committed, and
+ * the JIT removes its allocation, so it costs next to nothing.
+ */
+@Name("com.github.wibowo.Line")
+@Label("Line")
+@Description("Command line executed by a calculator session")
+@Category("RPN Calculator")
+@Enabled(false)
+@StackTrace(false)
+final class LineEvent extends Event {
+
+    @Label("Line")
+    String line;
+
+    @Label("Tokens")
+    int tokens;
+
+    @Label("Status")
+    String status;
+
+    @Label("Stack Depth")
+    int stackDepth;
+
+    /**
+     * End the event, and commit it if it is enabled and lasted longer than its threshold
+     *
+     * @param status status of the line, <code>null</code> if it threw
+     */
+    void commit(final @NotNull CompiledProgram program,
+                final CommandExecutionStatus status,
+                final int stackDepth) {
+        end();
+        if (shouldCommit()) {
+            this.line = program.line();
+            this.tokens = program.size();
+            this.status = String.valueOf(status);
+            this.stackDepth = stackDepth;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.github.wibowo;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of numbers parsed from text, keyed by the text of the number, so that repeated literals share the
+ * same {@link RealNumber} instead of being parsed again.
+ *
+ * The cache is a hash table without chaining: each literal has a single slot, and replaces whatever was in it.
+ * Lookups don't lock, and don't allocate. Entries are immutable, so they can be read safely while another thread
+ * replaces them. A capacity of 0 disables caching.
+ *
+ * @see NumericLiteral#parse(CharSequence, int, int)
+ */
+public final class LiteralCache {
+
+    /**
+     * Default number of slots. Can be overridden with the <code>rpn.literalCache.capacity</code> system property.
+     * Disabled by default.
+     */
+    public static final int DEFAULT_CAPACITY = Integer.getInteger("rpn.literalCache.capacity", 0);
+
+    /**
+     * Longer literals are rare enough, and expensive enough to compare, not to be worth caching
+     */
+    static final int MAX_LITERAL_LENGTH = 40;
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final Entry[] entries;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param capacity number of slots, rounded up to the next power of 2
+     */
+    public LiteralCache(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative. Received: " + capacity);
+        }
+        int slots = capacity == 0 ? 0 : 1;
+        while (slots < capacity && slots < MAX_CAPACITY) {
+            slots <<= 1;
+        }
+        entries = new Entry[slots];
+    }
+
+    boolean isEnabled() {
+        return entries.length > 0;
+    }
+
+    /**
+     * @return the cached number for the given range of the text, or <code>null</code> if it is not cached
+     */
+    @Nullable RealNumber get(final @NotNull CharSequence text,
+                             final int from,
+                             final int to) {
+        if (!isCacheable(from, to)) {
+            return null;
+        }
+        final int hash = hash(text, from, to);
+        final Entry entry = entries[hash & (entries.length - 1)];
+        if (entry != null && entry.hash == hash && entry.matches(text, from, to)) {
+            hits.increment();
+            return entry.number;
+        }
+        return null;
+    }
+
+    /**
+     * Cache the number parsed from the given range of the text, after a {@link #get(CharSequence, int, int)} missed
+     */
+    void put(final @NotNull CharSequence text,
+             final int from,
+             final int to,
+             final @NotNull RealNumber number) {
+        if (!isCacheable(from, to)) {
+            return;
+        }
+        misses.increment();
+        final int hash = hash(text, from, to);
+        final int slot = hash & (entries.length - 1);
+        if (entries[slot] != null) {
+            evictions.increment();
+        }
+        entries[slot] = new Entry(text.subSequence(from, to).toString(), hash, number);
+    }
+
+    private boolean isCacheable(final int from,
+                                final int to) {
+        return entries.length > 0 && to - from <= MAX_LITERAL_LENGTH;
+    }
+
+    private static int hash(final CharSequence text,
+                            final int from,
+                            final int to) {
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * @return number of literals found in the cache
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of cacheable literals that had to be parsed, i.e. numbers not found in the cache. Text that is
+     * not a number is not counted.
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of literals replaced by another one with the same slot
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return number of literals currently in the cache
+     */
+    public int size() {
+        int size = 0;
+        for (final Entry entry : entries) {
+            if (entry != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Literal cache: size=%d, hits=%d, misses=%d, evictions=%d", size(), hits(), misses(), evictions());
+    }
+
+    private static final class Entry {
+        private final String literal;
+
+        private final int hash;
+
+        private final RealNumber number;
+
+        private Entry(final String literal,
+                      final int hash,
+                      final RealNumber number) {
+            this.literal = literal;
+            this.hash = hash;
+            this.number = number;
+        }
+
+        private boolean matches(final CharSequence text,
+                                final int from,
+                                final int to) {
+            if (literal.length() != to - from) {
+                return false;
+            }
+            for (int i = from; i < to; i++) {
+                if (literal.charAt(i - from) != text.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.github.wibowo;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * What the calculator engine is doing: lines and tokens processed, invocations of each {@link Operation}, with their
+ * failures and rollbacks, latencies, and the size of the stack and of the undo history.
+ *
+ * Recording uses {@link LongAdder} and {@link LatencyHistogram}, so it does not lock, and does not allocate once the
+ * counters have been used by the recording threads. It is cheap enough to be always on. The same instance is
+ * usually shared by all sessions, see {@link #GLOBAL}, and exposed as a platform MBean, see {@link #registerMBean()}.
+ */
+public final class Metrics implements MetricsMXBean {
+
+    static final String OBJECT_NAME = "com.github.wibowo:type=Metrics";
+
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    /**
+     * Metrics of all sessions, unless they are given their own
+     */
+    public static final Metrics GLOBAL = new Metrics();
+
+    private final LongAdder lines = new LongAdder();
+
+    private final LongAdder tokens = new LongAdder();
+
+    private final LongAdder parseErrors = new LongAdder();
+
+    private final LatencyHistogram processLine = new LatencyHistogram();
+
+    /**
+     * Counters and histograms of each operation, by ordinal
+     */
+    private final LongAdder[] invocations = new LongAdder[OPERATIONS.length];
+
+    private final LongAdder[] failures = new LongAdder[OPERATIONS.length];
+
+    private final LongAdder[] rollbacks = new LongAdder[OPERATIONS.length];
+
+    private final LatencyHistogram[] evaluate = new LatencyHistogram[OPERATIONS.length];
+
+    private volatile long stackDepth;
+
+    private final LongAccumulator maxStackDepth = new LongAccumulator(Math::max, 0);
+
+    private volatile long undoHistorySize;
+
+    private final LongAccumulator maxUndoHistorySize = new LongAccumulator(Math::max, 0);
+
+    public Metrics() {
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            invocations[i] = new LongAdder();
+            failures[i] = new LongAdder();
+            rollbacks[i] = new LongAdder();
+            evaluate[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Register {@link #GLOBAL} with the platform MBean server, as {@value #OBJECT_NAME}. Does nothing if it is
+     * registered already.
+     */
+    public static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(GLOBAL, new ObjectName(OBJECT_NAME));
+        } catch (final InstanceAlreadyExistsException exception) {
+            // registered already
+        } catch (final JMException exception) {
+            throw new IllegalStateException("Unable to register metrics MBean", exception);
+        }
+    }
+
+    /**
+     * @param tokenCount number of tokens of the line
+     * @param nanos time taken to process the line
+     */
+    void recordLine(final int tokenCount,
+                    final long nanos) {
+        lines.increment();
+        tokens.add(tokenCount);
+        processLine.record(nanos);
+    }
+
+    /**
+     * Record a token that is neither a number nor an operation
+     */
+    void recordParseError() {
+        parseErrors.increment();
+    }
+
+    void recordInvocation(final Operation operation) {
+        invocations[operation.ordinal()].increment();
+    }
+
+    void recordInvocations(final Operation operation,
+                           final int count) {
+        invocations[operation.ordinal()].add(count);
+    }
+
+    /**
+     * @param nanos time taken to compute the result of an invocation
+     */
+    void recordEvaluation(final Operation operation,
+                          final long nanos) {
+        evaluate[operation.ordinal()].record(nanos);
+    }
+
+    void recordFailure(final Operation operation) {
+        failures[operation.ordinal()].increment();
+    }
+
+    /**
+     * Record that the arguments of an invocation were given back: left on the stack on failure, or pushed back on undo
+     */
+    void recordRollback(final Operation operation) {
+        rollbacks[operation.ordinal()].increment();
+    }
+
+    /**
+     * @param depth stack size after a line
+     * @param historySize items keeping their arguments after a line
+     */
+    void recordStack(final int depth,
+                     final int historySize) {
+        stackDepth = depth;
+        maxStackDepth.accumulate(depth);
+        undoHistorySize = historySize;
+        maxUndoHistorySize.accumulate(historySize);
+    }
+
+    /**
+     * @return the metrics, as lines of text for user. Only operations invoked at least once are listed.
+     */
+    public List<String> report() {
+        final List<String> report = new ArrayList<>();
+        report.add(String.format("lines: %d, tokens: %d, parse errors: %d (%.2f%%)",
+                getLines(), getTokens(), getParseErrors(), getParseErrorRate() * 100));
+        report.add(String.format("processLine: mean %.1f us, p50 %d us, p99 %d us, max %d us",
+                processLine.meanNanos() / 1000, micros(getProcessLineP50Nanos()), micros(getProcessLineP99Nanos()), micros(getProcessLineMaxNanos())));
+        report.add(String.format("stack depth: %d (max %d), undo history: %d (max %d)",
+                getStackDepth(), getMaxStackDepth(), getUndoHistorySize(), getMaxUndoHistorySize()));
+        for (final Operation operation : OPERATIONS) {
+            final long count = invocations[operation.ordinal()].sum();
+            if (count == 0) {
+                continue;
+            }
+            final LatencyHistogram histogram = evaluate[operation.ordinal()];
+            report.add(String.format("%s: invocations %d, failures %d, rollbacks %d, evaluate mean %.1f us, p99 %d us",
+                    operation.command().isEmpty() ? operation.name() : operation.command(), count,
+                    failures[operation.ordinal()].sum(), rollbacks[operation.ordinal()].sum(),
+                    histogram.meanNanos() / 1000, micros(histogram.percentileNanos(99))));
+        }
+        return report;
+    }
+
+    private static long micros(final long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    @Override
+    public long getLines() {
+        return lines.sum();
+    }
+
+    @Override
+    public long getTokens() {
+        return tokens.sum();
+    }
+
+    @Override
+    public long getParseErrors() {
+        return parseErrors.sum();
+    }
+
+    @Override
+    public double getParseErrorRate() {
+        final long tokenCount = getTokens();
+        return tokenCount == 0 ? 0 : (double) getParseErrors() / tokenCount;
+    }
+
+    @Override
+    public long getStackDepth() {
+        return stackDepth;
+    }
+
+    @Override
+    public long getMaxStackDepth() {
+        return maxStackDepth.get();
+    }
+
+    @Override
+    public long getUndoHistorySize() {
+        return undoHistorySize;
+    }
+
+    @Override
+    public long getMaxUndoHistorySize() {
+        return maxUndoHistorySize.get();
+    }
+
+    @Override
+    public double getProcessLineMeanNanos() {
+        return processLine.meanNanos();
+    }
+
+    @Override
+    public long getProcessLineP50Nanos() {
+        return processLine.percentileNanos(50);
+    }
+
+    @Override
+    public long getProcessLineP99Nanos() {
+        return processLine.percentileNanos(99);
+    }
+
+    @Override
+    public long getProcessLineMaxNanos() {
+        return processLine.maxNanos();
+    }
+
+    @Override
+    public Map<String, Long> getInvocations() {
+        return byOperation(operation -> invocations[operation.ordinal()].sum());
+    }
+
+    @Override
+    public Map<String, Long> getFailures() {
+        return byOperation(operation -> failures[operation.ordinal()].sum());
+    }
+
+    @Override
+    public Map<String, Long> getRollbacks() {
+        return byOperation(operation -> rollbacks[operation.ordinal()].sum());
+    }
+
+    @Override
+    public Map<String, Double> getEvaluateMeanNanos() {
+        return byOperation(operation -> evaluate[operation.ordinal()].meanNanos());
+    }
+
+    @Override
+    public Map<String, Long> getEvaluateP99Nanos() {
+        return byOperation(operation -> evaluate[operation.ordinal()].percentileNanos(99));
+    }
+
+    /**
+     * @return the given metric of each operation invoked at least once
+     */
+    private <T> Map<String, T> byOperation(final @NotNull Function<Operation, T> metric) {
+        final Map<String, T> values = new LinkedHashMap<>();
+        for (final Operation operation : OPERATIONS) {
+            if (invocations[operation.ordinal()].sum() > 0) {
+                values.put(operation.command().isEmpty() ? operation.name() : operation.command(), metric.apply(operation));
+            }
+        }
+        return values;
+    }
+}
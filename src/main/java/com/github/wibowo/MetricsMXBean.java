@@ -0,0 +1,52 @@
+package com.github.wibowo;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link Metrics}. Durations are in nanoseconds, maps are keyed by operation command.
+ */
+public interface MetricsMXBean {
+
+    long getLines();
+
+    long getTokens();
+
+    long getParseErrors();
+
+    /**
+     * @return parse errors per token
+     */
+    double getParseErrorRate();
+
+    /**
+     * @return stack size after the last line processed, in any session
+     */
+    long getStackDepth();
+
+    long getMaxStackDepth();
+
+    /**
+     * @return items keeping their arguments after the last line processed, in any session
+     */
+    long getUndoHistorySize();
+
+    long getMaxUndoHistorySize();
+
+    double getProcessLineMeanNanos();
+
+    long getProcessLineP50Nanos();
+
+    long getProcessLineP99Nanos();
+
+    long getProcessLineMaxNanos();
+
+    Map<String, Long> getInvocations();
+
+    Map<String, Long> getFailures();
+
+    Map<String, Long> getRollbacks();
+
+    Map<String, Double> getEvaluateMeanNanos();
+
+    Map<String, Long> getEvaluateP99Nanos();
+}
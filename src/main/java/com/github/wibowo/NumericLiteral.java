@@ -0,0 +1,143 @@
+package com.github.wibowo;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+
+/**
+ * Recognizer and parser for the numbers given by user, e.g. "42", "-42.5", "+.5".
+ *
+ * Accepts the same strings as the regex <code>^[-+]?[0-9]*\.?[0-9]+$</code>. The characters are scanned once, and
+ * the unscaled value and the scale are accumulated along the way. Literals up to {@link #MAX_LONG_DIGITS} significant
+ * digits are accumulated into a <code>long</code>, longer ones fall back to {@link BigDecimal}.
+ */
+public final class NumericLiteral {
+
+    /**
+     * Any number with this many digits fits into a <code>long</code>
+     */
+    static final int MAX_LONG_DIGITS = 18;
+
+    /**
+     * Numbers parsed so far, shared by all threads
+     */
+    static final LiteralCache CACHE = new LiteralCache(LiteralCache.DEFAULT_CAPACITY);
+
+    private NumericLiteral() {}
+
+    /**
+     * @param text text to be checked
+     * @return <code>true</code> if the whole text is a number
+     */
+    public static boolean matches(final @NotNull CharSequence text) {
+        return matches(text, 0, text.length());
+    }
+
+    /**
+     * @param text text containing the number
+     * @param from 0 based offset of the first character of the number, inclusive
+     * @param to 0 based offset of the last character of the number, exclusive
+     * @return <code>true</code> if the given range of the text is a number
+     */
+    public static boolean matches(final @NotNull CharSequence text,
+                                  final int from,
+                                  final int to) {
+        int i = from;
+        if (i < to && isSign(text.charAt(i))) {
+            i++;
+        }
+        boolean seenDecimalPoint = false;
+        boolean endsWithDigit = false;
+        for (; i < to; i++) {
+            final char character = text.charAt(i);
+            if (isDigit(character)) {
+                endsWithDigit = true;
+            } else if (character == '.' && !seenDecimalPoint) {
+                seenDecimalPoint = true;
+                endsWithDigit = false;
+            } else {
+                return false;
+            }
+        }
+        return endsWithDigit;
+    }
+
+    /**
+     * Parse the given range of the text into a number, with default scaling. The number is shared with previous
+     * occurrences of the same literal, when found in the {@link #CACHE}.
+     *
+     * @param text text containing the number
+     * @param from 0 based offset of the first character of the number, inclusive
+     * @param to 0 based offset of the last character of the number, exclusive
+     * @return the number, or <code>null</code> if the given range of the text is not a number
+     */
+    public static @Nullable RealNumber parse(final @NotNull CharSequence text,
+                                             final int from,
+                                             final int to) {
+        if (!CACHE.isEnabled()) {
+            return parseUncached(text, from, to);
+        }
+        RealNumber number = CACHE.get(text, from, to);
+        if (number == null) {
+            number = parseUncached(text, from, to);
+            if (number != null) {
+                CACHE.put(text, from, to, number);
+            }
+        }
+        return number;
+    }
+
+    private static @Nullable RealNumber parseUncached(final @NotNull CharSequence text,
+                                                      final int from,
+                                                      final int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && isSign(text.charAt(i))) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+
+        long unscaledValue = 0;
+        int significantDigits = 0;
+        int scale = 0;
+        boolean seenDecimalPoint = false;
+        boolean endsWithDigit = false;
+        for (; i < to; i++) {
+            final char character = text.charAt(i);
+            if (isDigit(character)) {
+                endsWithDigit = true;
+                if (seenDecimalPoint) {
+                    scale++;
+                }
+                if (significantDigits > 0 || character != '0') {
+                    significantDigits++;
+                }
+                if (significantDigits <= MAX_LONG_DIGITS) {
+                    unscaledValue = unscaledValue * 10 + (character - '0');
+                }
+            } else if (character == '.' && !seenDecimalPoint) {
+                seenDecimalPoint = true;
+                endsWithDigit = false;
+            } else {
+                return null;
+            }
+        }
+        if (!endsWithDigit) {
+            return null;
+        }
+
+        if (significantDigits > MAX_LONG_DIGITS) {
+            return RealNumber.of(new BigDecimal(text.subSequence(from, to).toString()));
+        }
+        return RealNumber.of(negative ? -unscaledValue : unscaledValue, scale);
+    }
+
+    private static boolean isSign(final char character) {
+        return character == '-' || character == '+';
+    }
+
+    private static boolean isDigit(final char character) {
+        return character >= '0' && character <= '9';
+    }
+}
@@ -1,45 +1,60 @@
 package com.github.wibowo;
 
-import ch.obermuhlner.math.big.BigDecimalMath;
-import com.google.common.base.Preconditions;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.math.BigDecimal;
-import java.math.MathContext;
-import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
-import static java.util.EnumSet.complementOf;
-import static java.util.EnumSet.of;
-import static java.util.function.Function.identity;
-import static java.util.stream.Collectors.toMap;
-
 public enum Operation {
     /**
      * FIRST_ARG + SECOND_ARG
      */
     Plus("+",2, true){
         @Override
-        public RealNumber evaluate(final List<RealNumber> arguments) {
+        public RealNumber evaluate(final List<RealNumber> arguments,
+                                   final Precision precision) {
             verifyArguments(this, arguments);
-            final RealNumber firstNumber = arguments.get(0);
-            final RealNumber secondNumber = arguments.get(1);
-            return RealNumber.of(firstNumber.eval().add(secondNumber.eval()));
+            return apply(precision, arguments.get(0), arguments.get(1));
+        }
+
+        @Override
+        RealNumber apply(final Precision precision,
+                         final RealNumber firstNumber,
+                         final RealNumber secondNumber) {
+            return precision.add(firstNumber, secondNumber);
         }
 
+        @Override
+        boolean isAssociative() {
+            return true;
+        }
+
+        @Override
+        RealNumber applyAll(final Precision precision,
+                            final List<RealNumber> numbers) {
+            return precision.sum(numbers);
+        }
     },
     /**
      * SECOND_ARG - FIRST_ARG
      */
     Minus("-", 2, true){
         @Override
-        public RealNumber evaluate(final List<RealNumber> arguments) {
+        public RealNumber evaluate(final List<RealNumber> arguments,
+                                   final Precision precision) {
             verifyArguments(this, arguments);
-            final RealNumber firstNumber = arguments.get(0);
-            final RealNumber secondNumber = arguments.get(1);
-            return RealNumber.of(secondNumber.eval().subtract(firstNumber.eval()));
+            return apply(precision, arguments.get(0), arguments.get(1));
+        }
+
+        @Override
+        RealNumber apply(final Precision precision,
+                         final RealNumber firstNumber,
+                         final RealNumber secondNumber) {
+            return precision.subtract(secondNumber, firstNumber);
         }
     },
     /**
@@ -47,11 +62,17 @@ public enum Operation {
      */
     Multiply("*", 2, true){
         @Override
-        public RealNumber evaluate(final List<RealNumber> arguments) {
+        public RealNumber evaluate(final List<RealNumber> arguments,
+                                   final Precision precision) {
             verifyArguments(this, arguments);
-            final RealNumber firstNumber = arguments.get(0);
-            final RealNumber secondNumber = arguments.get(1);
-            return RealNumber.of(secondNumber.eval().multiply(firstNumber.eval()));
+            return apply(precision, arguments.get(0), arguments.get(1));
+        }
+
+        @Override
+        RealNumber apply(final Precision precision,
+                         final RealNumber firstNumber,
+                         final RealNumber secondNumber) {
+            return precision.multiply(secondNumber, firstNumber);
         }
     },
     /**
@@ -59,14 +80,25 @@ public enum Operation {
      */
     Divide("/", 2, true){
         @Override
-        public RealNumber evaluate(final List<RealNumber> arguments) {
+        public RealNumber evaluate(final List<RealNumber> arguments,
+                                   final Precision precision) {
             verifyArguments(this, arguments);
-            final BigDecimal firstNumber = arguments.get(0).eval();
-            final BigDecimal secondNumber = arguments.get(1).eval();
-            if (firstNumber.equals(BigDecimal.ZERO)) {
+            return apply(precision, arguments.get(0), arguments.get(1));
+        }
+
+        @Override
+        RealNumber apply(final Precision precision,
+                         final RealNumber firstNumber,
+                         final RealNumber secondNumber) {
+            if (firstNumber.signum() == 0) {
                 throw CalculatorException.divisionByZero();
             }
-            return RealNumber.of(secondNumber.divide(firstNumber, RealNumber.DEFAULT_SCALE, RoundingMode.HALF_EVEN));
+            return precision.divide(secondNumber, firstNumber);
+        }
+
+        @Override
+        @Nullable CalculatorError domainError(final List<RealNumber> arguments) {
+            return arguments.get(0).signum() == 0 ? CalculatorError.DivisionByZero : null;
         }
     },
     /**
@@ -74,10 +106,81 @@ public enum Operation {
      */
     Sqrt("sqrt", 1, true) {
         @Override
-        public RealNumber evaluate(final List<RealNumber> arguments) {
+        public RealNumber evaluate(final List<RealNumber> arguments,
+                                   final Precision precision) {
             verifyArguments(this, arguments);
-            final RealNumber firstNumber = arguments.get(0);
-            return RealNumber.of(BigDecimalMath.sqrt(firstNumber.eval(), MathContext.DECIMAL64));
+            return apply(precision, arguments.get(0));
+        }
+
+        @Override
+        RealNumber apply(final Precision precision,
+                         final RealNumber firstNumber) {
+            return precision.sqrt(firstNumber);
+        }
+
+        @Override
+        @Nullable CalculatorError domainError(final List<RealNumber> arguments) {
+            return arguments.get(0).signum() < 0 ? CalculatorError.SquareRootOfNegative : null;
+        }
+    },
+    /**
+     * FIRST_ARG + SECOND_ARG + ... of the whole stack, or of its top items
+     */
+    Sum("sum", Operation.ANY_NUMBER_OF_ARGUMENTS, true) {
+        @Override
+        RealNumber applyAll(final Precision precision,
+                            final List<RealNumber> numbers) {
+            return precision.sum(numbers);
+        }
+    },
+    /**
+     * FIRST_ARG * SECOND_ARG * ... of the whole stack, or of its top items
+     */
+    Product("prod", Operation.ANY_NUMBER_OF_ARGUMENTS, true) {
+        @Override
+        RealNumber applyAll(final Precision precision,
+                            final List<RealNumber> numbers) {
+            return precision.product(numbers);
+        }
+    },
+    /**
+     * Mean of the whole stack, or of its top items
+     */
+    Mean("mean", Operation.ANY_NUMBER_OF_ARGUMENTS, true) {
+        @Override
+        RealNumber applyAll(final Precision precision,
+                            final List<RealNumber> numbers) {
+            return precision.mean(numbers);
+        }
+    },
+    /**
+     * Smallest item of the whole stack, or of its top items
+     */
+    Min("min", Operation.ANY_NUMBER_OF_ARGUMENTS, true) {
+        @Override
+        RealNumber applyAll(final Precision precision,
+                            final List<RealNumber> numbers) {
+            return Reductions.min(numbers);
+        }
+    },
+    /**
+     * Largest item of the whole stack, or of its top items
+     */
+    Max("max", Operation.ANY_NUMBER_OF_ARGUMENTS, true) {
+        @Override
+        RealNumber applyAll(final Precision precision,
+                            final List<RealNumber> numbers) {
+            return Reductions.max(numbers);
+        }
+    },
+    /**
+     * FIRST_ARG^2 + SECOND_ARG^2 + ... of the whole stack, or of its top items
+     */
+    SumOfSquares("sumsq", Operation.ANY_NUMBER_OF_ARGUMENTS, true) {
+        @Override
+        RealNumber applyAll(final Precision precision,
+                            final List<RealNumber> numbers) {
+            return precision.sumOfSquares(numbers);
         }
     },
     /**
@@ -93,14 +196,15 @@ public enum Operation {
      */
     Push("", 1, false) {
         @Override
-        public RealNumber evaluate(final List<RealNumber> arguments) {
+        public RealNumber evaluate(final List<RealNumber> arguments,
+                                   final Precision precision) {
             verifyArguments(this, arguments);
             return arguments.get(0);
         }
 
         @Override
         public boolean matches(String operationString) {
-            return operationString.matches("^[-+]?[0-9]*\\.?[0-9]+$");
+            return NumericLiteral.matches(operationString);
         }
     },
     /**
@@ -112,6 +216,26 @@ public enum Operation {
             return false;
         }
     },
+    /**
+     * Remember the current stack, to come back to it with {@link #Restore}
+     */
+    Fork("fork", 0, false),
+    /**
+     * Go back to the stack remembered by the last {@link #Fork}
+     */
+    Restore("restore", 0, false),
+    /**
+     * Print the full stack, whichever {@link StackRenderer} is used
+     */
+    Print("print", 0, false),
+    /**
+     * Switch to the {@link Precision} profile named by the next token, or print the current one
+     */
+    SwitchPrecision("precision", 0, false),
+    /**
+     * Print the {@link Metrics} of the session
+     */
+    Stats("stats", 0, false),
     /**
      * Print help
      */
@@ -121,16 +245,54 @@ public enum Operation {
      */
     Quit("quit", 0, false);
 
+    /**
+     * {@link #numArguments} of the reductions, which take as many arguments as they are given, at least one
+     */
+    static final int ANY_NUMBER_OF_ARGUMENTS = -1;
+
+    /**
+     * Separator between a reduction and the number of items it reduces, e.g. <code>sum:3</code>
+     */
+    static final char COUNT_SEPARATOR = ':';
+
     private static void verifyArguments(final Operation operation,
                                         final List<RealNumber> arguments) {
-        Preconditions.checkArgument(arguments.size() == operation.numArguments,
-                String.format("%s operation requires %d arguments. Received: %s", operation.name(), operation.numArguments, arguments)
-        );
+        // the message is only formatted on failure
+        if (operation.numArguments == ANY_NUMBER_OF_ARGUMENTS) {
+            if (arguments.isEmpty()) {
+                throw new IllegalArgumentException(String.format(
+                        "%s operation requires at least 1 argument. Received: %s", operation.name(), arguments));
+            }
+        } else if (arguments.size() != operation.numArguments) {
+            throw new IllegalArgumentException(String.format(
+                    "%s operation requires %s arguments. Received: %s", operation.name(), operation.numArguments, arguments));
+        }
     }
 
-    static final Map<String, Operation> dictionary = complementOf(of(Operation.Push, Operation.UnsupportedOperation))
-                .stream()
-                .collect(toMap(Operation::command, identity()));
+    /**
+     * @return the operations by {@link #command}, except {@link #Push} and {@link #UnsupportedOperation}
+     */
+    static Map<String, Operation> dictionary() {
+        return Dictionary.OPERATIONS;
+    }
+
+    /**
+     * Holder of {@link #dictionary()}, only built when the first command is looked up, and without streams, whose
+     * lambdas are costly to bootstrap when the JVM starts
+     */
+    private static final class Dictionary {
+        private static final Map<String, Operation> OPERATIONS;
+
+        static {
+            final Map<String, Operation> operations = new HashMap<>();
+            for (final Operation operation : values()) {
+                if (operation != Push && operation != UnsupportedOperation) {
+                    operations.put(operation.command, operation);
+                }
+            }
+            OPERATIONS = Collections.unmodifiableMap(operations);
+        }
+    }
 
     /**
      * String representation of the command (to match what user will give)
@@ -162,7 +324,7 @@ public enum Operation {
      * @return Operation if found, {@link Operation#UnsupportedOperation} otherwise.
      */
     public static @NotNull Operation findOperation(final @NotNull String operationString) {
-        final Operation operation = dictionary.get(operationString.toLowerCase());
+        final Operation operation = Dictionary.OPERATIONS.get(operationString.toLowerCase());
         if (operation != null) {
             return operation;
         } else if (Push.matches(operationString)) {
@@ -176,10 +338,89 @@ public enum Operation {
         return command;
     }
 
+    /**
+     * Evaluate with the {@link Precision#DEFAULT} precision
+     */
     public RealNumber evaluate(final List<RealNumber> arguments) {
+        return evaluate(arguments, Precision.DEFAULT);
+    }
+
+    public RealNumber evaluate(final List<RealNumber> arguments,
+                               final Precision precision) {
+        if (isReduction()) {
+            verifyArguments(this, arguments);
+            return applyAll(precision, arguments);
+        }
         throw new UnsupportedOperationException(String.format("Should not try to evaluate %s operation. This is most likely a programming error.", this.name()));
     }
 
+    /**
+     * Evaluate an operation taking one argument, without going through a list of arguments.
+     *
+     * @param precision precision of the arithmetic
+     * @param firstNumber FIRST_ARG, i.e. the top of the stack
+     * @return result of the operation
+     */
+    RealNumber apply(final Precision precision,
+                     final RealNumber firstNumber) {
+        throw new UnsupportedOperationException(String.format("%s operation does not take 1 argument. This is most likely a programming error.", this.name()));
+    }
+
+    /**
+     * Evaluate an operation taking two arguments, without going through a list of arguments.
+     *
+     * @param precision precision of the arithmetic
+     * @param firstNumber FIRST_ARG, i.e. the top of the stack
+     * @param secondNumber SECOND_ARG, i.e. the item below the top of the stack
+     * @return result of the operation
+     */
+    RealNumber apply(final Precision precision,
+                     final RealNumber firstNumber,
+                     final RealNumber secondNumber) {
+        throw new UnsupportedOperationException(String.format("%s operation does not take 2 arguments. This is most likely a programming error.", this.name()));
+    }
+
+    /**
+     * Check the arguments that would make the evaluation fail, without evaluating it. Evaluating it anyway throws an
+     * exception, which is much more expensive than this check.
+     *
+     * @param arguments arguments of the operation, as many as it takes
+     * @return why the operation can't be evaluated with the given arguments, <code>null</code> if it can be. Failures
+     * that depend on the result, e.g. an overflow in {@link Precision#Binary64}, are not detected.
+     */
+    @Nullable CalculatorError domainError(final List<RealNumber> arguments) {
+        return null;
+    }
+
+    /**
+     * @return <code>true</code> if a chain of this operation can be evaluated at once, with
+     * {@link #applyAll(Precision, List)}, whichever way the operations are grouped. Only additions are: the exact sum
+     * of a chain has no more digits than its operands, whereas the exact product of a chain grows by the digits of
+     * each operand, so multiplying it at once would take time quadratic in its length.
+     */
+    boolean isAssociative() {
+        return false;
+    }
+
+    /**
+     * @return <code>true</code> for the operations reducing any number of items, see {@link #ANY_NUMBER_OF_ARGUMENTS}
+     */
+    boolean isReduction() {
+        return numArguments == ANY_NUMBER_OF_ARGUMENTS;
+    }
+
+    /**
+     * Evaluate a chain of this operation, for an {@link #isAssociative()} operation, or a reduction.
+     *
+     * @param precision precision of the arithmetic
+     * @param numbers the numbers to combine
+     * @return result of the chain
+     */
+    RealNumber applyAll(final Precision precision,
+                        final List<RealNumber> numbers) {
+        throw new UnsupportedOperationException(String.format("%s operation does not take any number of arguments. This is most likely a programming error.", this.name()));
+    }
+
     boolean matches(final String operationString){
         return Objects.equals(operationString, command);
     }
@@ -0,0 +1,209 @@
+package com.github.wibowo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parallel version of {@link BatchProcessor}. The input is split into chunks of about {@link #CHUNK_SIZE} bytes (by default),
+ * at line boundaries, and the chunks are evaluated on a {@link ForkJoinPool}. Each worker thread evaluates with its
+ * own stack. The results are written in the same order as the input lines.
+ *
+ * At most {@link #CHUNKS_IN_FLIGHT_PER_WORKER} chunks per worker are evaluated ahead of the output, to bound the
+ * memory used by results waiting to be written.
+ */
+public final class ParallelBatchProcessor {
+
+    static final int CHUNK_SIZE = 1 << 20;
+
+    static final int CHUNKS_IN_FLIGHT_PER_WORKER = 4;
+
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    private final int parallelism;
+
+    private final int chunkSize;
+
+    /**
+     * @param parallelism number of worker threads
+     */
+    public ParallelBatchProcessor(final int parallelism) {
+        this(parallelism, CHUNK_SIZE);
+    }
+
+    ParallelBatchProcessor(final int parallelism,
+                           final int chunkSize) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1. Received: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param input file containing the command lines, in UTF-8
+     * @param output file to write the result to, in UTF-8. Overwritten if it exists.
+     * @return summary of the processing, including the throughput of each worker
+     * @throws IOException if reading the input, or writing the output fails
+     */
+    public BatchSummary process(final @NotNull Path input,
+                                final @NotNull Path output) throws IOException {
+        Objects.requireNonNull(input);
+        Objects.requireNonNull(output);
+        final long startTime = System.nanoTime();
+        final Queue<Worker> workers = new ConcurrentLinkedQueue<>();
+        final ThreadLocal<BatchProcessor.LineEvaluator> lineEvaluator = ThreadLocal.withInitial(() -> {
+            final BatchProcessor.LineEvaluator evaluator = new BatchProcessor.LineEvaluator();
+            workers.add(new Worker(Thread.currentThread().getName(), evaluator));
+            return evaluator;
+        });
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ);
+             Writer writer = new BufferedWriter(
+                     new OutputStreamWriter(Files.newOutputStream(output), StandardCharsets.UTF_8),
+                     OUTPUT_BUFFER_SIZE)) {
+            final ArrayDeque<ForkJoinTask<ChunkResult>> inFlight = new ArrayDeque<>();
+            final int maxInFlight = parallelism * CHUNKS_IN_FLIGHT_PER_WORKER;
+            long lines = 0;
+
+            final long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                final int length = (int) Math.min(BatchProcessor.WINDOW_SIZE, size - position);
+                final MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                final boolean lastWindow = position + length == size;
+
+                int chunkStart = 0;
+                while (chunkStart < length) {
+                    final int chunkEnd = chunkEnd(window, chunkStart, length, lastWindow);
+                    if (chunkEnd == chunkStart) {
+                        break;
+                    }
+                    if (inFlight.size() == maxInFlight) {
+                        lines += write(inFlight.poll().join(), writer);
+                    }
+                    inFlight.add(pool.submit(new Chunk(lineEvaluator, window, chunkStart, chunkEnd, lastWindow && chunkEnd == length)));
+                    chunkStart = chunkEnd;
+                }
+                position += BatchProcessor.checkProgress(chunkStart, position);
+            }
+            while (!inFlight.isEmpty()) {
+                lines += write(inFlight.poll().join(), writer);
+            }
+            return new BatchSummary(lines, System.nanoTime() - startTime, workerSummaries(workers));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @return end of the chunk starting at the given offset, just after a new line. At the end of the input, the
+     * chunk may end without new line. The chunk is empty if the window does not contain the end of the line.
+     */
+    private int chunkEnd(final MappedByteBuffer window,
+                         final int chunkStart,
+                         final int length,
+                         final boolean lastWindow) {
+        int end = (int) Math.min((long) chunkStart + chunkSize, length);
+        while (end < length && window.get(end - 1) != '\n') {
+            end++;
+        }
+        if (end == length && !lastWindow) {
+            // last line of the window might continue in the next window
+            while (end > chunkStart && window.get(end - 1) != '\n') {
+                end--;
+            }
+        }
+        return end;
+    }
+
+    private static long write(final ChunkResult result,
+                              final Writer writer) throws IOException {
+        writer.append(result.output);
+        return result.lines;
+    }
+
+    private static List<WorkerSummary> workerSummaries(final Queue<Worker> workers) {
+        final List<WorkerSummary> summaries = new ArrayList<>();
+        for (final Worker worker : workers) {
+            summaries.add(new WorkerSummary(worker.name, worker.lineEvaluator.lines(), worker.lineEvaluator.busyNanos()));
+        }
+        return summaries;
+    }
+
+    private static final class Worker {
+        private final String name;
+
+        private final BatchProcessor.LineEvaluator lineEvaluator;
+
+        private Worker(final String name,
+                       final BatchProcessor.LineEvaluator lineEvaluator) {
+            this.name = name;
+            this.lineEvaluator = lineEvaluator;
+        }
+    }
+
+    private static final class ChunkResult {
+        private final CharSequence output;
+
+        private final long lines;
+
+        private ChunkResult(final CharSequence output,
+                            final long lines) {
+            this.output = output;
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * Evaluates the lines in a chunk of the input, with the line evaluator of the current worker
+     */
+    @SuppressWarnings("serial") // serializable as a ForkJoinTask, but never serialized
+    private static final class Chunk extends RecursiveTask<ChunkResult> {
+        private final ThreadLocal<BatchProcessor.LineEvaluator> lineEvaluator;
+
+        private final MappedByteBuffer window;
+
+        private final int from;
+
+        private final int to;
+
+        private final boolean endOfInput;
+
+        private Chunk(final ThreadLocal<BatchProcessor.LineEvaluator> lineEvaluator,
+                      final MappedByteBuffer window,
+                      final int from,
+                      final int to,
+                      final boolean endOfInput) {
+            this.lineEvaluator = lineEvaluator;
+            this.window = window;
+            this.from = from;
+            this.to = to;
+            this.endOfInput = endOfInput;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            final BatchProcessor.LineEvaluator evaluator = lineEvaluator.get();
+            final StringBuilder output = new StringBuilder(to - from);
+            final long linesBefore = evaluator.lines();
+            evaluator.evaluateLines(window, from, to, endOfInput, output);
+            return new ChunkResult(output, evaluator.lines() - linesBefore);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.github.wibowo;
+
+import java.util.AbstractList;
+import java.util.EmptyStackException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Stack backed by an immutable linked list, top of the stack first. Pushing allocates a node, popping only moves the
+ * head, and nodes are never modified once created, so they can be shared between stacks. That makes a
+ * {@link #snapshot()} O(1): the snapshot and this stack share all their nodes, and each one allocates only the nodes it
+ * pushes afterwards.
+ *
+ * Reading or replacing an item is O(depth) instead of O(1). Replacing an item copies the nodes above it.
+ *
+ * @param <E> the type of elements held in this collection
+ */
+public final class PersistentRPNStack<E> implements CalculatorStack<E> {
+
+    private Node<E> head;
+
+    private int size;
+
+    /**
+     * Lowest size reached since the last {@link #resetLowWaterMark()}
+     */
+    private int lowWaterMark;
+
+    /**
+     * View over the items removed by the last {@link #pop(int)}. Reused on every call.
+     */
+    private final PoppedItems poppedItems = new PoppedItems();
+
+    public PersistentRPNStack() {
+        this(null, 0);
+    }
+
+    private PersistentRPNStack(final Node<E> head,
+                               final int size) {
+        this.head = head;
+        this.size = size;
+        this.lowWaterMark = size;
+    }
+
+    @Override
+    public PersistentRPNStack<E> push(final E item) {
+        head = new Node<>(item, head);
+        size++;
+        return this;
+    }
+
+    @Override
+    public E pop() throws EmptyStackException {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        final E item = head.item;
+        head = head.next;
+        shrunkTo(--size);
+        return item;
+    }
+
+    /**
+     * The returned list is a view over the popped nodes, and is reused by the next call to this method.
+     */
+    @Override
+    public List<E> pop(final int count) throws IllegalStateException, EmptyStackException {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        if (size < count) {
+            throw new IllegalStateException("Not enough item in stack. Current stack size is " + size);
+        }
+        poppedItems.reset(head, count);
+        for (int i = 0; i < count; i++) {
+            head = head.next;
+        }
+        size -= count;
+        shrunkTo(size);
+        return poppedItems;
+    }
+
+    @Override
+    public E peek(final int depth) throws EmptyStackException, IllegalStateException {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        if (depth < 0 || depth >= size) {
+            throw new IllegalStateException("Not enough item in stack. Current stack size is " + size);
+        }
+        return nodeAt(head, depth).item;
+    }
+
+    @Override
+    public E get(final int index) throws IllegalStateException {
+        checkIndex(index);
+        return nodeAt(head, size - 1 - index).item;
+    }
+
+    @Override
+    public void set(final int index, final E item) throws IllegalStateException {
+        checkIndex(index);
+        head = replace(head, size - 1 - index, item);
+    }
+
+    /**
+     * @return copy of the nodes down to the given depth, where the node at that depth holds the given item. The nodes
+     * below it are shared.
+     */
+    private static <E> Node<E> replace(final Node<E> head,
+                                       final int depth,
+                                       final E item) {
+        final Object[] above = new Object[depth];
+        Node<E> node = head;
+        for (int i = 0; i < depth; i++) {
+            above[i] = node.item;
+            node = node.next;
+        }
+        Node<E> copy = new Node<>(item, node.next);
+        for (int i = depth - 1; i >= 0; i--) {
+            @SuppressWarnings("unchecked")
+            final E aboveItem = (E) above[i];
+            copy = new Node<>(aboveItem, copy);
+        }
+        return copy;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        head = null;
+        size = 0;
+        lowWaterMark = 0;
+    }
+
+    @Override
+    public int lowWaterMark() {
+        return lowWaterMark;
+    }
+
+    @Override
+    public void resetLowWaterMark() {
+        lowWaterMark = size;
+    }
+
+    @Override
+    public PersistentRPNStack<E> snapshot() {
+        return new PersistentRPNStack<>(head, size);
+    }
+
+    @Override
+    public PersistentRPNStack<E> persistent() {
+        return this;
+    }
+
+    /**
+     * @return stack holding the items of the given stack, with the same low water mark
+     */
+    static <E> PersistentRPNStack<E> copyOf(final CalculatorStack<E> stack) {
+        final PersistentRPNStack<E> copy = new PersistentRPNStack<>();
+        stack.forEach(0, copy::push);
+        copy.lowWaterMark = stack.lowWaterMark();
+        return copy;
+    }
+
+    /**
+     * The items are collected first, since the list is linked from the top of the stack
+     */
+    @Override
+    public void forEach(final int from, final Consumer<? super E> action) throws IllegalStateException {
+        if (from < 0 || from > size) {
+            throw new IllegalStateException("Not enough item in stack. Current stack size is " + size);
+        }
+        final Object[] items = new Object[size - from];
+        Node<E> node = head;
+        for (int i = items.length - 1; i >= 0; i--) {
+            items[i] = node.item;
+            node = node.next;
+        }
+        for (final Object item : items) {
+            @SuppressWarnings("unchecked")
+            final E element = (E) item;
+            action.accept(element);
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("stack: ");
+        forEach(0, item -> builder.append(item).append(' '));
+        if (size > 0) {
+            builder.setLength(builder.length() - 1);
+        }
+        return builder.toString();
+    }
+
+    private void shrunkTo(final int newSize) {
+        if (newSize < lowWaterMark) {
+            lowWaterMark = newSize;
+        }
+    }
+
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IllegalStateException("Not enough item in stack. Current stack size is " + size);
+        }
+    }
+
+    private static <E> Node<E> nodeAt(final Node<E> head,
+                                      final int depth) {
+        Node<E> node = head;
+        for (int i = 0; i < depth; i++) {
+            node = node.next;
+        }
+        return node;
+    }
+
+    private static final class Node<E> {
+        private final E item;
+
+        private final Node<E> next;
+
+        private Node(final E item,
+                     final Node<E> next) {
+            this.item = item;
+            this.next = next;
+        }
+    }
+
+    private final class PoppedItems extends AbstractList<E> {
+        private Node<E> top;
+
+        private int count;
+
+        private void reset(final Node<E> top, final int count) {
+            this.top = top;
+            this.count = count;
+        }
+
+        @Override
+        public E get(final int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+            }
+            return nodeAt(top, index).item;
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package com.github.wibowo;
+
+import ch.obermuhlner.math.big.BigDecimalMath;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Precision profile of the arithmetic, chosen per {@link CalculatorSession}. Numbers pushed by user are rounded to
+ * the profile too, so that every number on the stack could have been produced by it.
+ */
+public enum Precision {
+    /**
+     * IEEE 754 binary64 arithmetic, i.e. <code>double</code>: about 16 significant digits, and the fastest profile
+     */
+    Binary64("double", null) {
+        @Override
+        RealNumber round(final RealNumber number) {
+            if (number.isLong() && Math.abs(number.longValue()) <= MAX_EXACT_DOUBLE) {
+                return number;
+            }
+            return RealNumber.ofDouble(number.doubleValue());
+        }
+
+        @Override
+        RealNumber add(final RealNumber first, final RealNumber second) {
+            return RealNumber.ofDouble(first.doubleValue() + second.doubleValue());
+        }
+
+        @Override
+        RealNumber subtract(final RealNumber first, final RealNumber second) {
+            return RealNumber.ofDouble(first.doubleValue() - second.doubleValue());
+        }
+
+        @Override
+        RealNumber multiply(final RealNumber first, final RealNumber second) {
+            return RealNumber.ofDouble(first.doubleValue() * second.doubleValue());
+        }
+
+        @Override
+        RealNumber divide(final RealNumber dividend, final RealNumber divisor) {
+            return RealNumber.ofDouble(dividend.doubleValue() / divisor.doubleValue());
+        }
+
+        @Override
+        RealNumber sum(final List<RealNumber> numbers) {
+            return RealNumber.ofDouble(doubleSum(numbers));
+        }
+
+        @Override
+        RealNumber product(final List<RealNumber> numbers) {
+            return RealNumber.ofDouble(Reductions.reduce(numbers, numbersToMultiply -> {
+                double product = 1;
+                for (final RealNumber number : numbersToMultiply) {
+                    product *= number.doubleValue();
+                }
+                return product;
+            }, (first, second) -> first * second));
+        }
+
+        @Override
+        RealNumber sumOfSquares(final List<RealNumber> numbers) {
+            return RealNumber.ofDouble(Reductions.reduce(numbers, numbersToSquare -> {
+                double sum = 0;
+                for (final RealNumber number : numbersToSquare) {
+                    sum += number.doubleValue() * number.doubleValue();
+                }
+                return sum;
+            }, Double::sum));
+        }
+
+        @Override
+        RealNumber mean(final List<RealNumber> numbers) {
+            return RealNumber.ofDouble(doubleSum(numbers) / numbers.size());
+        }
+
+        @Override
+        boolean isDeferrable() {
+            return false;
+        }
+
+        @Override
+        RealNumber sqrt(final RealNumber number) {
+            if (number.signum() < 0) {
+                throw new ArithmeticException("Illegal sqrt(x) for x < 0: x = " + number.eval());
+            }
+            return RealNumber.ofDouble(Math.sqrt(number.doubleValue()));
+        }
+    },
+    /**
+     * IEEE 754 decimal64 arithmetic: 16 significant digits
+     */
+    Decimal64("decimal64", MathContext.DECIMAL64),
+    /**
+     * IEEE 754 decimal128 arithmetic: 34 significant digits
+     */
+    Decimal128("decimal128", MathContext.DECIMAL128),
+    /**
+     * Up to {@link RealNumber#DEFAULT_SCALE} fraction digits, with as many integer digits as needed. Square roots
+     * are computed with 16 significant digits.
+     */
+    Scale30("scale-30", null) {
+        @Override
+        RealNumber round(final RealNumber number) {
+            return number;
+        }
+
+        @Override
+        RealNumber add(final RealNumber first, final RealNumber second) {
+            return first.add(second);
+        }
+
+        @Override
+        RealNumber subtract(final RealNumber first, final RealNumber second) {
+            return first.subtract(second);
+        }
+
+        @Override
+        RealNumber multiply(final RealNumber first, final RealNumber second) {
+            return first.multiply(second);
+        }
+
+        @Override
+        RealNumber product(final List<RealNumber> numbers) {
+            final RealNumber product = exactProduct(numbers);
+            return product.isLong() ? product : RealNumber.of(product.eval());
+        }
+
+        @Override
+        RealNumber sumOfSquares(final List<RealNumber> numbers) {
+            final RealNumber sum = exactSumOfSquares(numbers);
+            return sum.isLong() ? sum : RealNumber.of(sum.eval());
+        }
+
+        @Override
+        RealNumber divide(final RealNumber dividend, final RealNumber divisor) {
+            return RealNumber.of(dividend.eval().divide(divisor.eval(), RealNumber.DEFAULT_SCALE, RoundingMode.HALF_EVEN));
+        }
+
+        @Override
+        RealNumber sqrt(final RealNumber number) {
+            return RealNumber.of(BigDecimalMath.sqrt(number.eval(), MathContext.DECIMAL64));
+        }
+    };
+
+    /**
+     * System property overriding {@link #DEFAULT}
+     */
+    static final String PROPERTY = "rpn.precision";
+
+    /**
+     * Profile of new sessions. Can be overridden with the <code>rpn.precision</code> system property. An unknown
+     * profile falls back to scale-30, so that no session fails to start: {@link RPNCalculator#main(String[])} reports
+     * it instead.
+     */
+    public static final Precision DEFAULT = defaultProfile();
+
+    /**
+     * Any <code>long</code> up to this magnitude is exactly representable as <code>double</code>
+     */
+    private static final long MAX_EXACT_DOUBLE = 1L << 53;
+
+    private final String profileName;
+
+    /**
+     * Rounding of every result, for the decimal profiles
+     */
+    private final MathContext mathContext;
+
+    Precision(final String profileName,
+              final MathContext mathContext) {
+        this.profileName = profileName;
+        this.mathContext = mathContext;
+    }
+
+    private static Precision defaultProfile() {
+        final Precision precision = find(System.getProperty(PROPERTY, Scale30.profileName));
+        return precision != null ? precision : Scale30;
+    }
+
+    /**
+     * @param profileName name of the profile, as given by user
+     * @return the profile, or <code>null</code> if there is no such profile
+     */
+    public static @Nullable Precision find(final @NotNull String profileName) {
+        Objects.requireNonNull(profileName);
+        for (final Precision precision : values()) {
+            if (precision.profileName.equalsIgnoreCase(profileName)) {
+                return precision;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param profileName name of the profile
+     * @return the profile
+     * @throws IllegalArgumentException if there is no such profile
+     */
+    public static Precision parse(final @NotNull String profileName) {
+        final Precision precision = find(profileName);
+        if (precision == null) {
+            throw new IllegalArgumentException("Unsupported precision: [" + profileName + "]");
+        }
+        return precision;
+    }
+
+    public String profileName() {
+        return profileName;
+    }
+
+    /**
+     * @return the given number, rounded to this profile
+     */
+    RealNumber round(final RealNumber number) {
+        if (number.isLong() && number.longValue() > -MAX_EXACT_DOUBLE && number.longValue() < MAX_EXACT_DOUBLE) {
+            // at most 16 digits, so already exact
+            return number;
+        }
+        return RealNumber.exact(number.eval().round(mathContext));
+    }
+
+    /**
+     * Sums of integers are computed exactly first, without {@link java.math.BigDecimal} unless they overflow, and then
+     * rounded. So are differences and products.
+     *
+     * @return first + second
+     */
+    RealNumber add(final RealNumber first, final RealNumber second) {
+        if (first.isLong() && second.isLong()) {
+            return round(first.add(second));
+        }
+        return RealNumber.exact(first.eval().add(second.eval(), mathContext));
+    }
+
+    /**
+     * @return first - second
+     */
+    RealNumber subtract(final RealNumber first, final RealNumber second) {
+        if (first.isLong() && second.isLong()) {
+            return round(first.subtract(second));
+        }
+        return RealNumber.exact(first.eval().subtract(second.eval(), mathContext));
+    }
+
+    /**
+     * @return first * second
+     */
+    RealNumber multiply(final RealNumber first, final RealNumber second) {
+        if (first.isLong() && second.isLong()) {
+            return round(first.multiply(second));
+        }
+        return RealNumber.exact(first.eval().multiply(second.eval(), mathContext));
+    }
+
+    /**
+     * Sum of all the given numbers, computed exactly and rounded once, instead of after each addition
+     *
+     * @return numbers[0] + numbers[1] + ... + numbers[n - 1]
+     */
+    RealNumber sum(final List<RealNumber> numbers) {
+        return round(exactSum(numbers));
+    }
+
+    /**
+     * Product of all the given numbers, computed exactly and rounded once, instead of after each multiplication
+     *
+     * @return numbers[0] * numbers[1] * ... * numbers[n - 1]
+     */
+    RealNumber product(final List<RealNumber> numbers) {
+        return round(exactProduct(numbers));
+    }
+
+    /**
+     * Sum of the squares of all the given numbers, computed exactly and rounded once
+     *
+     * @return numbers[0]^2 + numbers[1]^2 + ... + numbers[n - 1]^2
+     */
+    RealNumber sumOfSquares(final List<RealNumber> numbers) {
+        return round(exactSumOfSquares(numbers));
+    }
+
+    /**
+     * Mean of the given numbers, i.e. their exact sum divided by their count, rounded like a division
+     *
+     * @param numbers numbers to average, not empty
+     * @return (numbers[0] + numbers[1] + ... + numbers[n - 1]) / n
+     */
+    RealNumber mean(final List<RealNumber> numbers) {
+        return divide(exactSum(numbers), RealNumber.of(numbers.size()));
+    }
+
+    /**
+     * @return <code>true</code> if additions never fail, so they can be computed later than executed. Binary64 ones fail when the result overflows, which has to be reported by the operation overflowing.
+     */
+    boolean isDeferrable() {
+        return true;
+    }
+
+    /**
+     * @param dividend the number to divide, must not be 0
+     * @param divisor the number to divide by
+     * @return dividend / divisor
+     */
+    RealNumber divide(final RealNumber dividend, final RealNumber divisor) {
+        return RealNumber.exact(dividend.eval().divide(divisor.eval(), mathContext));
+    }
+
+    /**
+     * @return square root of the given number
+     */
+    RealNumber sqrt(final RealNumber number) {
+        return RealNumber.exact(BigDecimalMath.sqrt(number.eval(), mathContext));
+    }
+
+    private static RealNumber exactSum(final List<RealNumber> numbers) {
+        return Reductions.reduce(numbers, Precision::sequentialSum, (first, second) -> sequentialSum(Arrays.asList(first, second)));
+    }
+
+    private static RealNumber exactProduct(final List<RealNumber> numbers) {
+        return Reductions.reduce(numbers, Precision::sequentialProduct, (first, second) -> sequentialProduct(Arrays.asList(first, second)));
+    }
+
+    private static RealNumber exactSumOfSquares(final List<RealNumber> numbers) {
+        return Reductions.reduce(numbers, Precision::sequentialSumOfSquares, (first, second) -> sequentialSum(Arrays.asList(first, second)));
+    }
+
+    private static double doubleSum(final List<RealNumber> numbers) {
+        return Reductions.reduce(numbers, numbersToAdd -> {
+            double sum = 0;
+            for (final RealNumber number : numbersToAdd) {
+                sum += number.doubleValue();
+            }
+            return sum;
+        }, Double::sum);
+    }
+
+    /**
+     * Integers are summed as <code>long</code> until one is not, or the sum overflows
+     */
+    private static RealNumber sequentialSum(final List<RealNumber> numbers) {
+        long longSum = 0;
+        int i = 0;
+        try {
+            for (; i < numbers.size() && numbers.get(i).isLong(); i++) {
+                longSum = Math.addExact(longSum, numbers.get(i).longValue());
+            }
+        } catch (final ArithmeticException overflow) {
+            // continue with BigDecimal below
+        }
+        if (i == numbers.size()) {
+            return RealNumber.of(longSum);
+        }
+        BigDecimal sum = BigDecimal.valueOf(longSum);
+        for (; i < numbers.size(); i++) {
+            sum = sum.add(numbers.get(i).eval());
+        }
+        return RealNumber.exact(sum);
+    }
+
+    /**
+     * Integers are multiplied as <code>long</code> until one is not, or the product overflows
+     */
+    private static RealNumber sequentialProduct(final List<RealNumber> numbers) {
+        long longProduct = 1;
+        int i = 0;
+        try {
+            for (; i < numbers.size() && numbers.get(i).isLong(); i++) {
+                longProduct = Math.multiplyExact(longProduct, numbers.get(i).longValue());
+            }
+        } catch (final ArithmeticException overflow) {
+            // continue with BigDecimal below
+        }
+        if (i == numbers.size()) {
+            return RealNumber.of(longProduct);
+        }
+        BigDecimal product = BigDecimal.valueOf(longProduct);
+        for (; i < numbers.size(); i++) {
+            product = product.multiply(numbers.get(i).eval());
+        }
+        return RealNumber.exact(product);
+    }
+
+    /**
+     * Squares of integers are summed as <code>long</code> until one is not, or the sum overflows
+     */
+    private static RealNumber sequentialSumOfSquares(final List<RealNumber> numbers) {
+        long longSum = 0;
+        int i = 0;
+        try {
+            for (; i < numbers.size() && numbers.get(i).isLong(); i++) {
+                final long number = numbers.get(i).longValue();
+                longSum = Math.addExact(longSum, Math.multiplyExact(number, number));
+            }
+        } catch (final ArithmeticException overflow) {
+            // continue with BigDecimal below
+        }
+        if (i == numbers.size()) {
+            return RealNumber.of(longSum);
+        }
+        BigDecimal sum = BigDecimal.valueOf(longSum);
+        for (; i < numbers.size(); i++) {
+            final BigDecimal number = numbers.get(i).eval();
+            sum = sum.add(number.multiply(number));
+        }
+        return RealNumber.exact(sum);
+    }
+
+    @Override
+    public String toString() {
+        return profileName;
+    }
+}
@@ -0,0 +1,149 @@
+package com.github.wibowo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of {@link CompiledProgram}, keyed by the command line text.
+ *
+ * Large caches are split into up to {@link #MAX_SEGMENTS} segments, selected by the hash of the line, so that threads
+ * evaluating different lines rarely contend for the same lock. Each segment evicts its least recently used program
+ * once it is full. A capacity of 0 disables caching.
+ */
+public final class ProgramCache {
+
+    /**
+     * Default number of programs to keep. Can be overridden with the <code>rpn.programCache.capacity</code>
+     * system property.
+     */
+    public static final int DEFAULT_CAPACITY = Integer.getInteger("rpn.programCache.capacity", 4096);
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private static final int MIN_SEGMENT_CAPACITY = 64;
+
+    private final Segment[] segments;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param capacity maximum number of programs to keep
+     */
+    public ProgramCache(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative. Received: " + capacity);
+        }
+        int numberOfSegments = 1;
+        while (numberOfSegments < MAX_SEGMENTS && numberOfSegments * 2 * MIN_SEGMENT_CAPACITY <= capacity) {
+            numberOfSegments *= 2;
+        }
+        final int segmentCapacity = (capacity + numberOfSegments - 1) / numberOfSegments;
+        segments = new Segment[numberOfSegments];
+        for (int i = 0; i < numberOfSegments; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    /**
+     * @param line command line given by user
+     * @return the cached program for the line, or the newly compiled one
+     */
+    public CompiledProgram compile(final @NotNull String line) {
+        Objects.requireNonNull(line);
+        final Segment segment = segmentFor(line);
+        if (segment.capacity == 0) {
+            misses.increment();
+            return CompiledProgram.compile(line);
+        }
+
+        CompiledProgram program;
+        synchronized (segment) {
+            program = segment.get(line);
+        }
+        if (program != null) {
+            hits.increment();
+            return program;
+        }
+
+        misses.increment();
+        program = CompiledProgram.compile(line);
+        synchronized (segment) {
+            segment.put(line, program);
+        }
+        return program;
+    }
+
+    private Segment segmentFor(final String line) {
+        final int hash = line.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    /**
+     * @return number of lines found in the cache
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of lines that had to be compiled
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of programs evicted to make space for others
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return number of programs currently in the cache
+     */
+    public int size() {
+        int size = 0;
+        for (final Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Program cache: size=%d, hits=%d, misses=%d, evictions=%d", size(), hits(), misses(), evictions());
+    }
+
+    /**
+     * {@link LinkedHashMap} in access order, i.e. least recently used first
+     */
+    @SuppressWarnings("serial") // serializable as a LinkedHashMap, but never serialized
+    private final class Segment extends LinkedHashMap<String, CompiledProgram> {
+        private final int capacity;
+
+        private Segment(final int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, CompiledProgram> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -1,117 +1,261 @@
 package com.github.wibowo;
 
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
-import java.util.Scanner;
-import java.util.function.Supplier;
-
-import static com.github.wibowo.TokenPositionFinder.findTokenPositionInOriginalLine;
-import static java.util.stream.Collectors.toList;
-import static java.util.stream.StreamSupport.stream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
 
 public final class RPNCalculator {
-    private static final Logger LOGGER = LoggerFactory.getLogger(RPNCalculator.class);
     public static final String BANNER_MESSAGE = "RPN Calculator. Type '?' for supported operations.";
 
+    static final String BATCH_OPTION = "--batch";
+
+    static final String PARALLELISM_OPTION = "--parallelism";
+
+    static final String SERVER_OPTION = "--server";
+
+    /**
+     * Interactive mode writing to the standard output instead of the logger, for the fastest start
+     */
+    static final String CONSOLE_OPTION = "--console";
+
+    /**
+     * Exit status when processing failed, e.g. a file could not be read
+     */
+    static final int EXIT_FAILURE = 1;
+
+    /**
+     * Exit status when the arguments are invalid
+     */
+    static final int EXIT_USAGE = 2;
+
+    /**
+     * Holder of the logger, so that the logging framework is only initialized when it is used
+     */
+    private static final class Logging {
+        private static final Logger LOGGER = LoggerFactory.getLogger(RPNCalculator.class);
+    }
+
+    /**
+     * Sends the messages to the logger
+     */
+    static final CalculatorOutput LOGGER_OUTPUT = new CalculatorOutput() {
+        @Override
+        public void info(final String message) {
+            Logging.LOGGER.info(message);
+        }
+
+        @Override
+        public void warn(final String message) {
+            Logging.LOGGER.warn(message);
+        }
+    };
+
+    /**
+     * Prints the messages to the standard output, one per line, as the logger is configured to
+     */
+    static final CalculatorOutput CONSOLE_OUTPUT = new CalculatorOutput() {
+        @Override
+        public void info(final String message) {
+            System.out.println(message);
+        }
+
+        @Override
+        public void warn(final String message) {
+            System.out.println(message);
+        }
+    };
+
     public static void main(final String[] args) throws CalculatorException {
-        LOGGER.info(BANNER_MESSAGE);
-        final Scanner scanner = new Scanner(System.in, "UTF-8");
-
-        final RPNStack<OperationExecution> operationExecutions = new RPNStack<>();
-        while (scanner.hasNextLine()) {
-            final String line = scanner.nextLine();
-            if (!line.trim().isEmpty()) {
-                try {
-                    processLine(operationExecutions, line);
-                } finally {
-                    LOGGER.info("{}", operationExecutions);
-                }
+        final boolean console = args.length > 0 && CONSOLE_OPTION.equals(args[0]);
+        final String invalidProperty = invalidProperty();
+        if (invalidProperty != null) {
+            (console ? CONSOLE_OUTPUT : LOGGER_OUTPUT).warn(invalidProperty);
+            System.exit(EXIT_USAGE);
+        }
+        if (!console) {
+            Metrics.registerMBean();
+        }
+        if (args.length > 0 && BATCH_OPTION.equals(args[0])) {
+            final int status = runBatch(args);
+            if (status != 0) {
+                System.exit(status);
             }
+            return;
+        }
+        if (args.length > 0 && SERVER_OPTION.equals(args[0])) {
+            runServer(args);
+            return;
         }
+        runInteractive(console);
     }
 
-    private static CommandExecutionStatus processLine(final RPNStack<OperationExecution> operationExecutions,
-                                                      final String line) {
-        final String[] tokens = line.trim().split("\\s+");
-        CommandExecutionStatus currentStatus = CommandExecutionStatus.Success;
-        for (int i = 0; i < tokens.length; i++) {
-            final String token = tokens[i];
-            final Operation operation = Operation.findOperation(token);
-            if (operation == Operation.Push) {
-                operationExecutions.push(new OperationExecution(operation, RealNumber.of(token)));
-            } else if (operation == Operation.Clear) {
-                currentStatus = performClear(operationExecutions);
-            } else if (operation == Operation.Undo) {
-                currentStatus = performUndo(operationExecutions);
-            } else if (operation == Operation.UnsupportedOperation ) {
-                LOGGER.warn("operator {} (position: {}): unsupported operation", token, line.indexOf(token));
-            } else if (operation == Operation.Help) {
-                LOGGER.info("Supported operations are: {}", Operation.dictionary.keySet());
-            } else if (operation == Operation.Quit) {
-                LOGGER.info("Exiting..");
-                LOGGER.info("{}", operationExecutions);
-                System.exit(0);
-            } else {
-                final int operationIndex = i;
-                currentStatus = performOperation(operationExecutions, operation, () -> findTokenPositionInOriginalLine(line, operationIndex));
+    /**
+     * Sessions fall back to the default of a system property whose value is invalid, rather than failing to start.
+     * The calculator checks them before starting instead, to report a typo rather than silently ignore it.
+     *
+     * @return description of the first system property whose value is invalid, <code>null</code> if there is none
+     */
+    static @Nullable String invalidProperty() {
+        final String renderer = System.getProperty(CalculatorSession.RENDER_PROPERTY);
+        if (renderer != null) {
+            try {
+                StackRenderer.parse(renderer);
+            } catch (final IllegalArgumentException exception) {
+                return String.format("Invalid -D%s: %s", CalculatorSession.RENDER_PROPERTY, exception.getMessage());
             }
+        }
+        final String precision = System.getProperty(Precision.PROPERTY);
+        if (precision != null && Precision.find(precision) == null) {
+            return String.format("Invalid -D%s: Unsupported precision: [%s]", Precision.PROPERTY, precision);
+        }
+        return null;
+    }
+
+    /**
+     * Process the lines read from the standard input, until it ends or <code>quit</code> is given
+     *
+     * @param console <code>true</code> to start as fast as possible: messages are printed to the standard output
+     *                rather than logged, and no Flight Recorder event is created
+     */
+    private static void runInteractive(final boolean console) {
+        final CalculatorOutput output = console ? CONSOLE_OUTPUT : LOGGER_OUTPUT;
+        output.info(BANNER_MESSAGE);
+        // read line by line rather than with a Scanner, which compiles regular expressions when created
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
 
-            // short circuit : when current operation fail, dont try to process the remaining of the operations
-            if (currentStatus == CommandExecutionStatus.Failed) {
-                return currentStatus;
+        final SessionStore store = openStore(output);
+        final CalculatorSession session = new CalculatorSession(CalculatorSession.DEFAULT_UNDO_DEPTH,
+                store != null ? store.stack() : new RPNStack<>());
+        session.setFlightRecorderEvents(!console);
+        if (store != null && session.stack().size() > 0) {
+            output.info(session.render());
+        }
+        boolean storeFailureReported = false;
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    try {
+                        if (session.processLine(line, output) == CommandExecutionStatus.Quit) {
+                            output.info("Exiting..");
+                            output.info(session.render());
+                            closeStore(store, output);
+                            System.exit(0);
+                        }
+                    } finally {
+                        output.info(session.render());
+                    }
+                    if (!storeFailureReported && store != null && store.failure() != null) {
+                        output.warn(String.format("Session is no longer saved due to: [%s]", store.failure().getMessage()));
+                        storeFailureReported = true;
+                    }
+                }
             }
+        } catch (final IOException exception) {
+            output.warn(String.format("Reading input failed due to: [%s]", exception.getMessage()));
         }
-        return currentStatus;
+        closeStore(store, output);
     }
 
-    private static CommandExecutionStatus performClear(final RPNStack<OperationExecution> operationExecutions) {
-        operationExecutions.clear();
-        return CommandExecutionStatus.Success;
+    /**
+     * @return the store named by the {@link SessionStore#DIRECTORY_PROPERTY} system property, <code>null</code> if
+     * there is none, or it can't be opened
+     */
+    private static SessionStore openStore(final CalculatorOutput output) {
+        final String directory = System.getProperty(SessionStore.DIRECTORY_PROPERTY);
+        if (directory == null) {
+            return null;
+        }
+        try {
+            final SessionStore store = SessionStore.open(Paths.get(directory));
+            output.info(String.format("Restored %d items from %s in %d ms", store.stack().size(), directory,
+                    TimeUnit.NANOSECONDS.toMillis(store.recoveryNanos())));
+            return store;
+        } catch (final IOException | UncheckedIOException exception) {
+            output.warn(String.format("Session can't be restored due to: [%s]", exception.getMessage()));
+            return null;
+        }
     }
 
-    private static CommandExecutionStatus performOperation(final RPNStack<OperationExecution> operationExecutions,
-                                                           final Operation operation,
-                                                           final Supplier<Integer> operationPositionFinder) {
-        if (operationExecutions.size() < operation.numArguments) {
-            final Integer operationPosition = operationPositionFinder.get();
-            LOGGER.warn("operator {} (position: {}): insufficient parameters", operation.command(), operationPosition);
-            return CommandExecutionStatus.Failed;
-        } else {
-            final Iterable<OperationExecution> executions = operationExecutions.pop(operation.numArguments);
-            final List<RealNumber> arguments = stream(executions.spliterator(), false)
-                    .map(OperationExecution::getResult)
-                    .collect(toList());
-            try {
-                operationExecutions.push(new OperationExecution(operation, arguments));
-                return CommandExecutionStatus.Success;
-            } catch (final Exception exception) {
-                // rollback first
-                rollback(operationExecutions, arguments);
-
-                // then return error
-                final Integer operationPosition = operationPositionFinder.get();
-                LOGGER.warn("operator {} (position: {}): operation execution failed due to: [{}]", operation.command(), operationPosition, exception.getMessage());
-                return CommandExecutionStatus.Failed;
-            }
+    private static void closeStore(final SessionStore store,
+                                   final CalculatorOutput output) {
+        if (store == null) {
+            return;
+        }
+        try {
+            store.close();
+        } catch (final IOException | UncheckedIOException exception) {
+            output.warn(String.format("Session can't be saved due to: [%s]", exception.getMessage()));
         }
     }
 
-    private static CommandExecutionStatus performUndo(final RPNStack<OperationExecution> operationExecutions) {
-        final OperationExecution pop = operationExecutions.pop();
-        if (pop.getOperation().pushArgumentsOnUndo) {
-            final List<RealNumber> arguments = pop.getArguments();
-            rollback(operationExecutions, arguments);
+    /**
+     * Usage: <code>--batch &lt;input file&gt; &lt;output file&gt; [--parallelism &lt;number of threads&gt;]</code>
+     *
+     * @return the exit status: 0 on success, {@link #EXIT_USAGE} if the arguments are invalid, {@link #EXIT_FAILURE}
+     * if the files could not be read or written
+     */
+    static int runBatch(final String[] args) {
+        final boolean parallel = args.length == 5 && PARALLELISM_OPTION.equals(args[3]);
+        if (args.length != 3 && !parallel) {
+            Logging.LOGGER.error("Usage: {} <input file> <output file> [{} <number of threads>]", BATCH_OPTION, PARALLELISM_OPTION);
+            return EXIT_USAGE;
+        }
+        final ParallelBatchProcessor parallelProcessor;
+        try {
+            parallelProcessor = parallel ? new ParallelBatchProcessor(Integer.parseInt(args[4])) : null;
+        } catch (final IllegalArgumentException exception) {
+            Logging.LOGGER.error("Invalid {}: [{}]", PARALLELISM_OPTION, exception.getMessage());
+            return EXIT_USAGE;
+        }
+        try {
+            final BatchSummary summary;
+            if (parallelProcessor != null) {
+                summary = parallelProcessor.process(Paths.get(args[1]), Paths.get(args[2]));
+            } else {
+                summary = BatchProcessor.process(Paths.get(args[1]), Paths.get(args[2]));
+            }
+            Logging.LOGGER.info("{}", summary);
+            for (final WorkerSummary worker : summary.getWorkers()) {
+                Logging.LOGGER.info("{}", worker);
+            }
+            Logging.LOGGER.info("{}", CalculatorSession.PROGRAM_CACHE);
+            if (NumericLiteral.CACHE.isEnabled()) {
+                Logging.LOGGER.info("{}", NumericLiteral.CACHE);
+            }
+            return 0;
+        } catch (final IOException | UncheckedIOException | IllegalArgumentException exception) {
+            Logging.LOGGER.error("Batch processing failed due to: [{}]", exception.getMessage());
+            return EXIT_FAILURE;
         }
-        return CommandExecutionStatus.Success;
     }
 
-    private static void rollback(final RPNStack<OperationExecution> operationExecutions,
-                                 final List<RealNumber> arguments) {
-        for (int i = arguments.size()-1; i >= 0; i--) {
-            operationExecutions.push(new OperationExecution(Operation.Push, arguments.get(i)));
+    /**
+     * Usage: <code>--server &lt;port&gt;</code>. Listens on the loopback interface only.
+     */
+    private static void runServer(final String[] args) {
+        if (args.length != 2) {
+            Logging.LOGGER.error("Usage: {} <port>", SERVER_OPTION);
+            return;
+        }
+        try {
+            final CalculatorServer server = new CalculatorServer(
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[1])),
+                    CalculatorSession.DEFAULT_UNDO_DEPTH);
+            Logging.LOGGER.info("Listening on port {}", server.port());
+            server.run();
+        } catch (final IOException | IllegalArgumentException exception) {
+            Logging.LOGGER.error("Server failed due to: [{}]", exception.getMessage());
         }
     }
-
 }
@@ -1,65 +1,251 @@
 package com.github.wibowo;
 
 import java.util.*;
-import java.util.stream.StreamSupport;
-
-import static java.util.stream.Collectors.joining;
+import java.util.function.Consumer;
 
 /**
- * Basic stack implementation using {@link LinkedList}.
+ * Basic stack implementation backed by a growable array.
  * It adds the convenient method for popping two tokens at the same time.
  *
+ * Taking a {@link #snapshot()} copies the whole array. Use {@link #persistent()} when snapshots are frequent.
+ *
  * @see #pop(int)
  * @param <E> the type of elements held in this collection
  */
-public final class RPNStack<E> {
+public final class RPNStack<E> implements CalculatorStack<E> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Object[] elements;
+
+    private int size;
+
+    /**
+     * Number of slots, from the bottom, that may still hold a reference. Slots popped through {@link #pop(int)}
+     * are not cleared straight away, since the returned view is reading from them: they are cleared by the next call
+     * modifying this stack, which invalidates the view.
+     */
+    private int used;
 
-    private final java.util.LinkedList<E> stack;
+    /**
+     * Lowest size reached since the last {@link #resetLowWaterMark()}. Items below it have not been touched since.
+     */
+    private int lowWaterMark;
+
+    /**
+     * View over the items removed by the last {@link #pop(int)}. Reused on every call.
+     */
+    private final PoppedItems poppedItems = new PoppedItems();
 
     public RPNStack(){
-        stack = new LinkedList<>();
+        elements = new Object[INITIAL_CAPACITY];
+    }
+
+    private RPNStack(final Object[] elements,
+                     final int size) {
+        this.elements = elements;
+        this.size = size;
+        this.used = size;
+        this.lowWaterMark = size;
     }
 
-    public RPNStack push(final E item) {
-        stack.push(item);
+    @Override
+    public RPNStack<E> push(final E item) {
+        releasePopped();
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size + (size >> 1));
+        }
+        elements[size++] = item;
+        used = size;
         return this;
     }
 
+    @Override
     public int size() {
-        return stack.size();
+        return size;
+    }
+
+    @Override
+    public void forEach(final int from, final Consumer<? super E> action) throws IllegalStateException {
+        checkRange(from);
+        for (int i = from; i < size; i++) {
+            action.accept(elementAt(i));
+        }
     }
 
     @Override
     public String toString() {
-        return StreamSupport.stream(Spliterators.spliterator(stack.descendingIterator(), stack.size(), Spliterator.ORDERED), false)
-                .map(Object::toString)
-                .collect(joining(" ", "stack: ", ""));
+        final StringBuilder builder = new StringBuilder("stack: ");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(elements[i]);
+        }
+        return builder.toString();
     }
 
+    @Override
     public E pop() throws EmptyStackException {
-        if (stack.isEmpty()) {
+        if (size == 0) {
             throw new EmptyStackException();
         }
-        return stack.pop();
+        releasePopped();
+        final E item = elementAt(--size);
+        elements[size] = null;
+        if (size < lowWaterMark) {
+            lowWaterMark = size;
+        }
+        return item;
     }
 
-    public Iterable<E> pop(final int count) throws IllegalStateException, EmptyStackException {
-        if (stack.isEmpty()) {
+    /**
+     * Read an item without removing it from the stack.
+     *
+     * @param depth 0 for the top of the stack, 1 for the item below it, and so on
+     * @return item at the given depth
+     */
+    @Override
+    public E peek(final int depth) throws EmptyStackException, IllegalStateException {
+        if (size == 0) {
             throw new EmptyStackException();
         }
-        if (stack.size() < count) {
-            throw new IllegalStateException("Not enough item in stack. Current stack size is " + stack.size());
+        if (depth < 0 || depth >= size) {
+            throw new IllegalStateException("Not enough item in stack. Current stack size is " + size);
         }
+        return elementAt(size - 1 - depth);
+    }
 
-        final List<E> expressions = new ArrayList<>(count);
-        for (int i = 0; i < count; i++) {
-            expressions.add(pop());
+    /**
+     * Pop the top <code>count</code> items, top of the stack first.
+     *
+     * The returned list is a view over the storage of this stack, and is reused by the next call to this method.
+     * It is only valid until this stack is modified again, so copy whatever needs to be kept.
+     *
+     * @param count number of items to pop
+     * @return popped items, where the item at index 0 was the top of the stack
+     */
+    @Override
+    public List<E> pop(final int count) throws IllegalStateException, EmptyStackException {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        if (size < count) {
+            throw new IllegalStateException("Not enough item in stack. Current stack size is " + size);
         }
 
-        return expressions;
+        releasePopped();
+        size -= count;
+        if (size < lowWaterMark) {
+            lowWaterMark = size;
+        }
+        poppedItems.reset(size + count, count);
+        return poppedItems;
     }
 
+    @Override
     public void clear() {
-        stack.clear();
+        Arrays.fill(elements, 0, used, null);
+        size = 0;
+        used = 0;
+        lowWaterMark = 0;
+    }
+
+    @Override
+    public E get(final int index) throws IllegalStateException {
+        checkIndex(index);
+        return elementAt(index);
+    }
+
+    @Override
+    public void set(final int index, final E item) throws IllegalStateException {
+        checkIndex(index);
+        releasePopped();
+        elements[index] = item;
+    }
+
+    /**
+     * @return number of slots, from the bottom, that may still hold a reference, including those of the last
+     * {@link #pop(int)}
+     */
+    int retainedSlots() {
+        return used;
+    }
+
+    @Override
+    public int lowWaterMark() {
+        return lowWaterMark;
+    }
+
+    @Override
+    public void resetLowWaterMark() {
+        lowWaterMark = size;
+    }
+
+    @Override
+    public RPNStack<E> snapshot() {
+        return new RPNStack<>(Arrays.copyOf(elements, Math.max(size, INITIAL_CAPACITY)), size);
+    }
+
+    /**
+     * Copies the items into a {@link PersistentRPNStack}
+     */
+    @Override
+    public PersistentRPNStack<E> persistent() {
+        return PersistentRPNStack.copyOf(this);
+    }
+
+    /**
+     * Clear the slots left by the last {@link #pop(int)}, so that the items popped can be collected
+     */
+    private void releasePopped() {
+        if (used > size) {
+            Arrays.fill(elements, size, used, null);
+            used = size;
+        }
+    }
+
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IllegalStateException("Not enough item in stack. Current stack size is " + size);
+        }
+    }
+
+    private void checkRange(final int from) {
+        if (from < 0 || from > size) {
+            throw new IllegalStateException("Not enough item in stack. Current stack size is " + size);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private E elementAt(final int index) {
+        return (E) elements[index];
+    }
+
+    /**
+     * The popped slots are left in the backing array until this stack is modified again, which is what allows this
+     * view to be returned without copying.
+     */
+    private final class PoppedItems extends AbstractList<E> implements RandomAccess {
+        private int oldSize;
+
+        private int count;
+
+        private void reset(final int oldSize, final int count) {
+            this.oldSize = oldSize;
+            this.count = count;
+        }
+
+        @Override
+        public E get(final int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+            }
+            return elementAt(oldSize - 1 - index);
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
     }
 }
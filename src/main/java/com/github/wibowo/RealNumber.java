@@ -1,10 +1,11 @@
 package com.github.wibowo;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.math.RoundingMode;
-import java.text.DecimalFormat;
 import java.util.Objects;
 
 /**
@@ -12,43 +13,165 @@ import java.util.Objects;
  *
  * Default scaling used is {@link #DEFAULT_SCALE}, unless specified {@link RealNumber#of(String, int)}
  * Note that the {@link #DEFAULT_SCALE_FOR_PRINTING} is used for the String representation.
+ *
+ * Integral values within the range of <code>long</code> are held as plain <code>long</code>, and only promoted to
+ * {@link BigDecimal} when an arithmetic operation overflows, or produces a fraction. Every value has exactly one
+ * representation, so two instances holding the same value are always equal.
+ *
+ * Small integers, from {@link #MIN_CANONICAL} to {@link #MAX_CANONICAL}, always share the same instance. Numbers parsed
+ * from text may also be shared, see {@link LiteralCache}.
  */
-public final class RealNumber  {
+public final class RealNumber implements Comparable<RealNumber> {
     public static final int DEFAULT_SCALE = 30;
     public static final int DEFAULT_SCALE_FOR_PRINTING = 10;
     private static final RoundingMode DEFAULT_ROUNDING_MODE = RoundingMode.FLOOR;
 
-    private final ThreadLocal<DecimalFormat> decimalFormatter = ThreadLocal.withInitial(() -> {
-        final DecimalFormat decimalFormatter = new DecimalFormat();
-        decimalFormatter.setMaximumFractionDigits(DEFAULT_SCALE_FOR_PRINTING);
-        decimalFormatter.setMinimumFractionDigits(0);
-        decimalFormatter.setRoundingMode(DEFAULT_ROUNDING_MODE);
-        decimalFormatter.setGroupingUsed(false);
-        return decimalFormatter;
-    });
+    /**
+     * Any integral value with this many digits fits into a <code>long</code>
+     */
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private static final int MIN_CANONICAL = -128;
+
+    private static final int MAX_CANONICAL = 1024;
+
+    /**
+     * Shared instances of the integers from {@link #MIN_CANONICAL} to {@link #MAX_CANONICAL}
+     */
+    private static final RealNumber[] CANONICAL = new RealNumber[MAX_CANONICAL - MIN_CANONICAL + 1];
+
+    static {
+        for (int i = 0; i < CANONICAL.length; i++) {
+            CANONICAL[i] = new RealNumber(i + MIN_CANONICAL);
+        }
+    }
+
+    public static final RealNumber ZERO = of(0);
+
+    public static final RealNumber ONE = of(1);
+
+    public static final RealNumber TEN = of(10);
+
+    /**
+     * 10^i, for the number of digits dropped when printing numbers with the default scale
+     */
+    private static final BigInteger[] POWERS_OF_TEN = new BigInteger[DEFAULT_SCALE - DEFAULT_SCALE_FOR_PRINTING + 1];
+
+    static {
+        POWERS_OF_TEN[0] = BigInteger.ONE;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1].multiply(BigInteger.TEN);
+        }
+    }
 
+    /**
+     * The value, when it is integral and fits into a <code>long</code>. Only meaningful when {@link #value} is null.
+     */
+    private final long longValue;
+
+    /**
+     * The value, when it can't be held in {@link #longValue}. <code>null</code> otherwise.
+     */
     private final BigDecimal value;
 
+    /**
+     * String representation, computed on first use. Not volatile: racing threads compute the same string.
+     */
+    private String displayString;
+
     /**
      * Construct instance of this class from String, with default scaling.
      *
      * @param numberAsString number to construct from
      * @return instance of this class
+     * @throws CalculatorException if the string is not a number
      */
     public static RealNumber of(final @NotNull String numberAsString) {
+        final RealNumber number = parse(numberAsString);
+        if (number == null) {
+            throw CalculatorException.invalidNumber(numberAsString);
+        }
+        return number;
+    }
+
+    /**
+     * Construct instance of this class from String, with default scaling, without throwing when it is not a number
+     *
+     * @param numberAsString number to construct from, e.g. "42", "-4.2" or "4.2E+1"
+     * @return instance of this class, or <code>null</code> if the string is not a number
+     */
+    static @Nullable RealNumber parse(final @NotNull String numberAsString) {
         Objects.requireNonNull(numberAsString);
+        int from = 0;
+        int to = numberAsString.length();
+        while (from < to && numberAsString.charAt(from) <= ' ') {
+            from++;
+        }
+        while (to > from && numberAsString.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        final RealNumber number = NumericLiteral.parse(numberAsString, from, to);
+        if (number != null || !isDecimal(numberAsString, from, to)) {
+            return number;
+        }
+
+        // other notations accepted by BigDecimal, e.g. "1E+3"
         try {
-            BigDecimal value = new BigDecimal(numberAsString.trim());
+            BigDecimal value = new BigDecimal(numberAsString.substring(from, to));
             final int scale = value.scale();
             if (scale > DEFAULT_SCALE) {
                 value = value.setScale(DEFAULT_SCALE, DEFAULT_ROUNDING_MODE);
             }
-            return new RealNumber(value.stripTrailingZeros());
-        } catch (final Exception exception) {
-            throw CalculatorException.invalidNumber(numberAsString);
+            return normalized(value.stripTrailingZeros());
+        } catch (final NumberFormatException exception) {
+            // exponent out of range
+            return null;
         }
     }
 
+    /**
+     * @return <code>true</code> if the given range of the text is a decimal number, with an optional exponent, e.g.
+     * "1.", "1.5e-3", i.e. if {@link BigDecimal} accepts it
+     */
+    private static boolean isDecimal(final String text,
+                                     final int from,
+                                     final int to) {
+        int i = from;
+        if (i < to && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            i++;
+        }
+        int digits = 0;
+        for (; i < to && isDigit(text.charAt(i)); i++) {
+            digits++;
+        }
+        if (i < to && text.charAt(i) == '.') {
+            for (i++; i < to && isDigit(text.charAt(i)); i++) {
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        if (i < to && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            if (i < to && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+                i++;
+            }
+            final int exponentStart = i;
+            for (; i < to && isDigit(text.charAt(i)); i++) {
+                // exponent digits
+            }
+            if (i == exponentStart) {
+                return false;
+            }
+        }
+        return i == to;
+    }
+
+    private static boolean isDigit(final char character) {
+        return character >= '0' && character <= '9';
+    }
+
     /**
      * Construct instance of this class from String, with specified scaling.
      *
@@ -59,13 +182,42 @@ public final class RealNumber  {
     public static RealNumber of(final @NotNull String numberAsString,
                                 final int scale) {
         Objects.requireNonNull(numberAsString);
-        return new RealNumber(
+        return normalized(
                 new BigDecimal(numberAsString)
                         .setScale(scale, DEFAULT_ROUNDING_MODE)
                         .stripTrailingZeros()
         );
     }
 
+    /**
+     * Construct from given integral value
+     *
+     * @param number number to construct from
+     * @return instance of this class
+     */
+    public static RealNumber of(final long number) {
+        return valueOf(number);
+    }
+
+    /**
+     * Construct from unscaled value and scale (i.e. <code>unscaledValue * 10^-scale</code>), with default scaling
+     *
+     * @param unscaledValue unscaled value of the number
+     * @param scale scale of the number
+     * @return instance of this class
+     */
+    static RealNumber of(final long unscaledValue,
+                         final int scale) {
+        if (scale == 0) {
+            return valueOf(unscaledValue);
+        }
+        BigDecimal value = BigDecimal.valueOf(unscaledValue, scale);
+        if (scale > DEFAULT_SCALE) {
+            value = value.setScale(DEFAULT_SCALE, DEFAULT_ROUNDING_MODE);
+        }
+        return normalized(value.stripTrailingZeros());
+    }
+
     /**
      * Construct from given BigDecimal, with default scaling
      *
@@ -74,22 +226,158 @@ public final class RealNumber  {
      */
     public static RealNumber of(final @NotNull BigDecimal number) {
         Objects.requireNonNull(number);
-        return new RealNumber(
-                number
-                        .setScale(DEFAULT_SCALE, DEFAULT_ROUNDING_MODE)
-                        .stripTrailingZeros()
-        );
+        final BigDecimal scaled = number.scale() > DEFAULT_SCALE
+                ? number.setScale(DEFAULT_SCALE, DEFAULT_ROUNDING_MODE)
+                : number;
+        return normalized(scaled.stripTrailingZeros());
+    }
+
+    /**
+     * Construct from given BigDecimal, keeping all its digits, for the {@link Precision} profiles that round to a
+     * number of significant digits instead of a scale
+     *
+     * @param number number to construct from
+     * @return instance of this class
+     */
+    static RealNumber exact(final @NotNull BigDecimal number) {
+        return normalized(number.stripTrailingZeros());
+    }
+
+    /**
+     * Construct from given double, with the shortest decimal representation that converts back to the same double
+     *
+     * @param number number to construct from
+     * @return instance of this class
+     * @throws ArithmeticException if the number is infinite or NaN
+     */
+    static RealNumber ofDouble(final double number) {
+        if (Double.isNaN(number) || Double.isInfinite(number)) {
+            throw new ArithmeticException("Result is not a finite number: " + number);
+        }
+        if (number == Math.rint(number) && Math.abs(number) < 0x1p63) {
+            return valueOf((long) number);
+        }
+        return normalized(BigDecimal.valueOf(number).stripTrailingZeros());
+    }
+
+    /**
+     * @return the shared instance for small integers, a new instance otherwise
+     */
+    private static RealNumber valueOf(final long number) {
+        if (number >= MIN_CANONICAL && number <= MAX_CANONICAL) {
+            return CANONICAL[(int) number - MIN_CANONICAL];
+        }
+        return new RealNumber(number);
+    }
+
+    /**
+     * @param value value with trailing zeros stripped
+     * @return instance holding the given value as <code>long</code> whenever possible
+     */
+    private static RealNumber normalized(final BigDecimal value) {
+        if (value.scale() <= 0) {
+            final int integerDigits = value.precision() - value.scale();
+            if (integerDigits <= MAX_LONG_DIGITS
+                    || (integerDigits == MAX_LONG_DIGITS + 1 && value.toBigInteger().bitLength() < Long.SIZE)) {
+                return valueOf(value.longValue());
+            }
+        }
+        return new RealNumber(value);
     }
 
     public BigDecimal eval() {
-        return value;
+        return value != null ? value : BigDecimal.valueOf(longValue);
+    }
+
+    /**
+     * @return the value, as the nearest double
+     */
+    double doubleValue() {
+        return value != null ? value.doubleValue() : longValue;
+    }
+
+    /**
+     * @return the value, if this number {@link #isLong()}
+     */
+    long longValue() {
+        return longValue;
+    }
+
+    /**
+     * @return -1, 0 or 1 as this number is negative, zero or positive
+     */
+    int signum() {
+        return value != null ? value.signum() : Long.signum(longValue);
+    }
+
+    /**
+     * @return <code>true</code> if this number is held as <code>long</code>
+     */
+    boolean isLong() {
+        return value == null;
+    }
+
+    /**
+     * @return this + other
+     */
+    RealNumber add(final @NotNull RealNumber other) {
+        if (isLong() && other.isLong()) {
+            try {
+                return valueOf(Math.addExact(longValue, other.longValue));
+            } catch (final ArithmeticException overflow) {
+                // promote to BigDecimal below
+            }
+        }
+        return of(eval().add(other.eval()));
+    }
+
+    /**
+     * @return this - other
+     */
+    RealNumber subtract(final @NotNull RealNumber other) {
+        if (isLong() && other.isLong()) {
+            try {
+                return valueOf(Math.subtractExact(longValue, other.longValue));
+            } catch (final ArithmeticException overflow) {
+                // promote to BigDecimal below
+            }
+        }
+        return of(eval().subtract(other.eval()));
+    }
+
+    /**
+     * @return this * other
+     */
+    RealNumber multiply(final @NotNull RealNumber other) {
+        if (isLong() && other.isLong()) {
+            try {
+                return valueOf(Math.multiplyExact(longValue, other.longValue));
+            } catch (final ArithmeticException overflow) {
+                // promote to BigDecimal below
+            }
+        }
+        return of(eval().multiply(other.eval()));
+    }
+
+    private RealNumber(final long longValue) {
+        this.longValue = longValue;
+        this.value = null;
     }
 
     private RealNumber(final @NotNull BigDecimal value) {
+        this.longValue = 0;
         this.value = Objects.requireNonNull(value);
     }
 
 
+    @Override
+    public int compareTo(final @NotNull RealNumber other) {
+        if (isLong() && other.isLong()) {
+            return Long.compare(longValue, other.longValue);
+        }
+        return eval().compareTo(other.eval());
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -97,16 +385,82 @@ public final class RealNumber  {
 
         RealNumber that = (RealNumber) o;
 
+        if (value == null) {
+            return that.value == null && longValue == that.longValue;
+        }
         return value.equals(that.value);
     }
 
     @Override
     public int hashCode() {
-        return value.hashCode();
+        return value != null ? value.hashCode() : Long.hashCode(longValue);
     }
 
+    /**
+     * @return the value as plain decimal string, with at most {@link #DEFAULT_SCALE_FOR_PRINTING} fraction digits
+     * (rounded with {@link #DEFAULT_ROUNDING_MODE}), without trailing zeros
+     */
     @Override
     public String toString() {
-        return decimalFormatter.get().format(value);
+        String result = displayString;
+        if (result == null) {
+            result = value == null ? Long.toString(longValue) : format(value);
+            displayString = result;
+        }
+        return result;
+    }
+
+    /**
+     * Format from the unscaled value and the scale, i.e. the digits and the position of the decimal point
+     */
+    private static String format(final BigDecimal value) {
+        final int scale = value.scale();
+        if (scale <= 0) {
+            return value.toPlainString();
+        }
+
+        BigInteger unscaled = value.unscaledValue();
+        int fractionDigits = scale;
+        if (scale > DEFAULT_SCALE_FOR_PRINTING) {
+            // FLOOR: drop the extra digits, which rounds towards zero, then away from zero for negative numbers
+            final BigInteger[] quotientAndRemainder = unscaled.divideAndRemainder(powerOfTen(scale - DEFAULT_SCALE_FOR_PRINTING));
+            unscaled = quotientAndRemainder[0];
+            if (quotientAndRemainder[1].signum() < 0) {
+                unscaled = unscaled.subtract(BigInteger.ONE);
+            }
+            fractionDigits = DEFAULT_SCALE_FOR_PRINTING;
+            if (unscaled.signum() == 0) {
+                return "0";
+            }
+        }
+
+        final String digits = unscaled.abs().toString();
+        int end = digits.length();
+        while (fractionDigits > 0 && digits.charAt(end - 1) == '0') {
+            end--;
+            fractionDigits--;
+        }
+        final StringBuilder builder = new StringBuilder(end + 3);
+        if (unscaled.signum() < 0) {
+            builder.append('-');
+        }
+        final int integerDigits = end - fractionDigits;
+        if (integerDigits > 0) {
+            builder.append(digits, 0, integerDigits);
+        } else {
+            builder.append('0');
+        }
+        if (fractionDigits > 0) {
+            builder.append('.');
+            for (int i = integerDigits; i < 0; i++) {
+                builder.append('0');
+            }
+            builder.append(digits, Math.max(integerDigits, 0), end);
+        }
+        return builder.toString();
+    }
+
+    private static BigInteger powerOfTen(final int exponent) {
+        return exponent < POWERS_OF_TEN.length ? POWERS_OF_TEN[exponent] : BigInteger.TEN.pow(exponent);
     }
 }
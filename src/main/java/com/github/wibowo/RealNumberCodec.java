@@ -0,0 +1,153 @@
+package com.github.wibowo;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary form of {@link RealNumber}, exact unlike {@link RealNumber#toString()}, which is truncated for display.
+ *
+ * A number is a header, then its unscaled value, i.e. <code>number * 10^scale</code>. The header is the varint of
+ * <code>zigzag(scale) &lt;&lt; 1 | form</code>:
+ * <ul>
+ *     <li>form 0: the unscaled value fits into a <code>long</code>, and follows as a zigzag varint. E.g. 1 takes 2
+ *     bytes, 0.25 takes 2 bytes, and any number with up to 18 digits at most 11 bytes.</li>
+ *     <li>form 1: the unscaled value follows as the varint of its length, then its bytes, two's complement,
+ *     big-endian.</li>
+ * </ul>
+ *
+ * Varints are 7 bits per byte, least significant group first, with the high bit set on all bytes but the last.
+ * Numbers are read and written at the position of the buffer, which is moved past them.
+ */
+final class RealNumberCodec {
+
+    private static final int FORM_LONG = 0;
+
+    private static final int FORM_BIG = 1;
+
+    private RealNumberCodec() {}
+
+    /**
+     * @return number of bytes {@link #encode(RealNumber, ByteBuffer)} writes for the given number
+     */
+    static int encodedSize(final RealNumber number) {
+        if (number.isLong()) {
+            return 1 + varLongSize(zigzag(number.longValue()));
+        }
+        final BigDecimal value = number.eval();
+        final BigInteger unscaledValue = value.unscaledValue();
+        if (unscaledValue.bitLength() < Long.SIZE) {
+            return varLongSize(header(value.scale(), FORM_LONG)) + varLongSize(zigzag(unscaledValue.longValue()));
+        }
+        final int length = magnitudeLength(unscaledValue);
+        return varLongSize(header(value.scale(), FORM_BIG)) + varLongSize(length) + length;
+    }
+
+    /**
+     * @param target buffer with at least {@link #encodedSize(RealNumber)} bytes remaining
+     */
+    static void encode(final RealNumber number,
+                       final ByteBuffer target) {
+        if (number.isLong()) {
+            target.put((byte) header(0, FORM_LONG));
+            putVarLong(target, zigzag(number.longValue()));
+            return;
+        }
+        final BigDecimal value = number.eval();
+        final BigInteger unscaledValue = value.unscaledValue();
+        if (unscaledValue.bitLength() < Long.SIZE) {
+            putVarLong(target, header(value.scale(), FORM_LONG));
+            putVarLong(target, zigzag(unscaledValue.longValue()));
+            return;
+        }
+        putVarLong(target, header(value.scale(), FORM_BIG));
+        final int length = magnitudeLength(unscaledValue);
+        putVarLong(target, length);
+        // BigInteger only exposes its bytes through a new array
+        target.put(unscaledValue.toByteArray());
+    }
+
+    /**
+     * @return the number read from the given buffer, equal to the one encoded
+     */
+    static RealNumber decode(final ByteBuffer source) {
+        final long header = getVarLong(source);
+        final long zigzagScale = header >>> 1;
+        if (zigzagScale > 0xFFFFFFFFL) {
+            throw new IllegalStateException("Invalid scale: " + unzigzag(zigzagScale));
+        }
+        final int scale = (int) unzigzag(zigzagScale);
+        if ((header & 1) == FORM_LONG) {
+            final long unscaledValue = unzigzag(getVarLong(source));
+            return scale == 0 ? RealNumber.of(unscaledValue) : RealNumber.exact(BigDecimal.valueOf(unscaledValue, scale));
+        }
+        final long length = getVarLong(source);
+        if (length <= 0 || length > source.remaining()) {
+            throw new IllegalStateException("Invalid length: " + length);
+        }
+        final byte[] magnitude = new byte[(int) length];
+        source.get(magnitude);
+        return RealNumber.exact(new BigDecimal(new BigInteger(magnitude), scale));
+    }
+
+    private static long header(final int scale,
+                               final int form) {
+        return zigzag(scale) << 1 | form;
+    }
+
+    /**
+     * @return length of {@link BigInteger#toByteArray()}, without allocating it
+     */
+    private static int magnitudeLength(final BigInteger value) {
+        return value.bitLength() / Byte.SIZE + 1;
+    }
+
+    /**
+     * @return the value, with the sign moved to the lowest bit, so that small negative values are small too
+     */
+    static long zigzag(final long value) {
+        return (value << 1) ^ (value >> (Long.SIZE - 1));
+    }
+
+    static long unzigzag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static int varLongSize(final long value) {
+        // 1 byte per 7 significant bits, at least 1
+        return Math.max(1, (Long.SIZE - Long.numberOfLeadingZeros(value) + 6) / 7);
+    }
+
+    static void putVarLong(final ByteBuffer target,
+                           final long value) {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            target.put((byte) (remaining & 0x7F | 0x80));
+            remaining >>>= 7;
+        }
+        target.put((byte) remaining);
+    }
+
+    static long getVarLong(final ByteBuffer source) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            final byte next = source.get();
+            value |= (long) (next & 0x7F) << shift;
+            if (next >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Invalid varint");
+    }
+
+    /**
+     * @return a varint that must fit into an <code>int</code>, e.g. a count
+     */
+    static int getVarInt(final ByteBuffer source) {
+        final long value = getVarLong(source);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Invalid count: " + value);
+        }
+        return (int) value;
+    }
+}
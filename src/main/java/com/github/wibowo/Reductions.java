@@ -0,0 +1,103 @@
+package com.github.wibowo;
+
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Reductions of many numbers, e.g. by the <code>sum</code> operation. Lists longer than {@link #PARALLEL_THRESHOLD}
+ * are split in halves, recursively, and the halves are reduced on a {@link java.util.concurrent.ForkJoinPool}: the
+ * common pool, or the pool of the calling thread if it is a worker of one. The split only depends on the length of
+ * the list, so the partial results are always combined in the same way.
+ */
+final class Reductions {
+
+    /**
+     * Lists up to this length are reduced by the calling thread. Can be overridden with the
+     * <code>rpn.reduction.parallelThreshold</code> system property.
+     */
+    static final int PARALLEL_THRESHOLD = Integer.getInteger("rpn.reduction.parallelThreshold", 1 << 16);
+
+    private Reductions() {
+    }
+
+    /**
+     * @param numbers numbers to reduce, not empty
+     * @param reduction reduction of a part of the list, in one pass
+     * @param combination combination of the results of two consecutive parts
+     * @param <T> type of the partial results
+     * @return the result of the reduction of the whole list
+     */
+    static <T> T reduce(final List<RealNumber> numbers,
+                        final Function<List<RealNumber>, T> reduction,
+                        final BinaryOperator<T> combination) {
+        if (numbers.size() <= PARALLEL_THRESHOLD) {
+            return reduction.apply(numbers);
+        }
+        return new ReductionTask<>(numbers, reduction, combination).invoke();
+    }
+
+    /**
+     * @return the smallest number, the first one if several are equal
+     */
+    static RealNumber min(final List<RealNumber> numbers) {
+        return reduce(numbers, Reductions::sequentialMin, (first, second) -> second.compareTo(first) < 0 ? second : first);
+    }
+
+    /**
+     * @return the largest number, the first one if several are equal
+     */
+    static RealNumber max(final List<RealNumber> numbers) {
+        return reduce(numbers, Reductions::sequentialMax, (first, second) -> second.compareTo(first) > 0 ? second : first);
+    }
+
+    private static RealNumber sequentialMin(final List<RealNumber> numbers) {
+        RealNumber min = numbers.get(0);
+        for (int i = 1; i < numbers.size(); i++) {
+            if (numbers.get(i).compareTo(min) < 0) {
+                min = numbers.get(i);
+            }
+        }
+        return min;
+    }
+
+    private static RealNumber sequentialMax(final List<RealNumber> numbers) {
+        RealNumber max = numbers.get(0);
+        for (int i = 1; i < numbers.size(); i++) {
+            if (numbers.get(i).compareTo(max) > 0) {
+                max = numbers.get(i);
+            }
+        }
+        return max;
+    }
+
+    @SuppressWarnings("serial") // serializable as a ForkJoinTask, but never serialized
+    private static final class ReductionTask<T> extends RecursiveTask<T> {
+        private final List<RealNumber> numbers;
+
+        private final Function<List<RealNumber>, T> reduction;
+
+        private final BinaryOperator<T> combination;
+
+        private ReductionTask(final List<RealNumber> numbers,
+                              final Function<List<RealNumber>, T> reduction,
+                              final BinaryOperator<T> combination) {
+            this.numbers = numbers;
+            this.reduction = reduction;
+            this.combination = combination;
+        }
+
+        @Override
+        protected T compute() {
+            if (numbers.size() <= PARALLEL_THRESHOLD) {
+                return reduction.apply(numbers);
+            }
+            final int middle = numbers.size() / 2;
+            final ReductionTask<T> second = new ReductionTask<>(numbers.subList(middle, numbers.size()), reduction, combination);
+            second.fork();
+            final T first = new ReductionTask<>(numbers.subList(0, middle), reduction, combination).compute();
+            return combination.apply(first, second.join());
+        }
+    }
+}
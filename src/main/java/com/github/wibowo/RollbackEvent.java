@@ -0,0 +1,52 @@
+package com.github.wibowo;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Flight Recorder event for each item taken back from the stack: by <code>undo</code>, or because its operation
+ * failed. Disabled by default, like {@link LineEvent}.
+ */
+@Name("com.github.wibowo.Rollback")
+@Label("Rollback")
+@Description("Operation undone, or rolled back on failure")
+@Category("RPN Calculator")
+@Enabled(false)
+@StackTrace(false)
+final class RollbackEvent extends Event {
+
+    static final String UNDO = "undo";
+
+    static final String FAILURE = "failure";
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Reason")
+    String reason;
+
+    @Label("Restored Arguments")
+    int restoredArguments;
+
+    /**
+     * Commit the event, if it is enabled
+     *
+     * @param reason {@link #UNDO} or {@link #FAILURE}
+     */
+    void commit(final @NotNull Operation operation,
+                final @NotNull String reason,
+                final int restoredArguments) {
+        if (shouldCommit()) {
+            this.operation = operation.name();
+            this.reason = reason;
+            this.restoredArguments = restoredArguments;
+            commit();
+        }
+    }
+}
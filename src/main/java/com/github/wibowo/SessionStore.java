@@ -0,0 +1,461 @@
+package com.github.wibowo;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the stack of a session in a directory, so that it survives a restart: a snapshot of the stack, and a
+ * {@link JournalFile} of the changes made since, one record per line. Each record holds the {@link #FORMAT_VERSION},
+ * the size the stack was truncated to during the line, and the items pushed above it. Items are encoded by
+ * {@link StackCodec}, straight into the memory mapped journal, and into a direct buffer for snapshots.
+ *
+ * The journal is forced to the disk every {@link #DEFAULT_SYNC_INTERVAL_MILLIS} by a background thread, rather than
+ * after every line, so a crash loses at most the lines of the last interval. An interval of 0 forces it after every
+ * line. Every {@link #DEFAULT_SNAPSHOT_INTERVAL} records, and when the store is closed, a new snapshot is taken and
+ * the journal starts over, so that restarting reads a snapshot and at most that many records.
+ *
+ * Files of generation N are <code>snapshot-N</code>, holding the stack when the generation started, and
+ * <code>journal-N</code>. A snapshot is written to a temporary file, forced, then renamed, so the latest one is
+ * always complete. Files of older generations are deleted.
+ *
+ * Items keep their arguments, so they can still be undone after a restart. Deferred results are computed when they
+ * are written, as they would be when shown. Forks and the precision of the session are not kept.
+ *
+ * A failure to write, e.g. a full disk, does not fail the line being journaled: the store records it as its
+ * {@link #failure()}, and stops writing. The files are left as they were after the last line journaled.
+ */
+public final class SessionStore implements Closeable {
+
+    /**
+     * System property naming the directory of the store, for the interactive mode
+     */
+    public static final String DIRECTORY_PROPERTY = "rpn.journal";
+
+    public static final long DEFAULT_SYNC_INTERVAL_MILLIS = Long.getLong("rpn.journal.syncInterval", 1000);
+
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = Integer.getInteger("rpn.journal.snapshotInterval", 100_000);
+
+    /**
+     * A snapshot is taken when the journal reaches this size, whatever its number of records
+     */
+    static final long MAX_JOURNAL_SIZE = 1L << 30;
+
+    static final long DEFAULT_CHUNK_SIZE = 1L << 26;
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    private static final String JOURNAL_PREFIX = "journal-";
+
+    private static final int SNAPSHOT_MAGIC = 0x52504e53;
+
+    /**
+     * Version of the format of snapshots and journal records, including the encoding of {@link StackCodec}, written
+     * after the magic of a snapshot, and first in a record. To be incremented whenever either changes.
+     */
+    static final byte FORMAT_VERSION = 1;
+
+    /**
+     * Size of the buffer snapshots are encoded into, and written out from
+     */
+    private static final int SNAPSHOT_BUFFER_SIZE = 1 << 20;
+
+    private final Path directory;
+
+    private final long syncIntervalMillis;
+
+    private final int snapshotInterval;
+
+    private final long chunkSize;
+
+    /**
+     * Items changed by the line being journaled, reused from one line to the next
+     */
+    private final List<OperationExecution> changedItems = new ArrayList<>();
+
+    private final JournaledStack recoveredStack;
+
+    private final ScheduledExecutorService syncExecutor;
+
+    private long generation;
+
+    private JournalFile journal;
+
+    /**
+     * Stack described by the journal, see {@link #journal(JournaledStack)}
+     */
+    private JournaledStack journaledStack;
+
+    /**
+     * Size of {@link #journaledStack} as described by the journal, so that a line which only removes items is
+     * journaled too
+     */
+    private int journaledSize;
+
+    /**
+     * Whether the journal describes changes made since the last snapshot, which {@link #close()} then takes
+     */
+    private boolean changedSinceSnapshot;
+
+    private final long recoveryNanos;
+
+    /**
+     * First failure to write, after which nothing is written anymore
+     */
+    private volatile IOException failure;
+
+    private SessionStore(final Path directory,
+                         final long syncIntervalMillis,
+                         final int snapshotInterval,
+                         final long chunkSize,
+                         final Supplier<CalculatorStack<OperationExecution>> stackFactory) throws IOException {
+        final long startTime = System.nanoTime();
+        this.directory = directory;
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.snapshotInterval = snapshotInterval;
+        this.chunkSize = chunkSize;
+        Files.createDirectories(directory);
+
+        generation = latestSnapshot();
+        final CalculatorStack<OperationExecution> stack = stackFactory.get();
+        if (generation >= 0) {
+            readSnapshot(snapshotPath(generation), stack);
+        } else {
+            generation = 0;
+        }
+        journal = openJournal(journalPath(generation), record -> replay(record, stack));
+        deleteOlderGenerations();
+        stack.resetLowWaterMark();
+        recoveredStack = new JournaledStack(this, stack);
+        journaledStack = recoveredStack;
+        journaledSize = stack.size();
+        changedSinceSnapshot = journal.records() > 0;
+        recoveryNanos = System.nanoTime() - startTime;
+
+        if (syncIntervalMillis > 0) {
+            syncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "rpn-journal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncExecutor.scheduleWithFixedDelay(this::sync, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            syncExecutor = null;
+        }
+    }
+
+    /**
+     * Open the store kept in the given directory, creating it if needed, with an interactive session stack
+     *
+     * @param directory directory of the store
+     * @return the store, holding the stack as it was when the store was last used
+     * @throws IOException if the directory can't be read, or holds a corrupted snapshot
+     */
+    public static SessionStore open(final @NotNull Path directory) throws IOException {
+        return open(directory, DEFAULT_SYNC_INTERVAL_MILLIS, DEFAULT_SNAPSHOT_INTERVAL, DEFAULT_CHUNK_SIZE,
+                RPNStack::new);
+    }
+
+    /**
+     * @param syncIntervalMillis interval between two forces of the journal, 0 to force it after every line
+     * @param snapshotInterval number of records after which a snapshot is taken
+     * @param chunkSize size of the memory mapped window of the journal
+     * @param stackFactory creates the stack to restore the items into
+     */
+    static SessionStore open(final @NotNull Path directory,
+                             final long syncIntervalMillis,
+                             final int snapshotInterval,
+                             final long chunkSize,
+                             final @NotNull Supplier<CalculatorStack<OperationExecution>> stackFactory) throws IOException {
+        Objects.requireNonNull(directory);
+        Objects.requireNonNull(stackFactory);
+        if (syncIntervalMillis < 0 || snapshotInterval <= 0 || chunkSize <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid journal settings: sync interval %d, snapshot interval %d, chunk size %d",
+                    syncIntervalMillis, snapshotInterval, chunkSize));
+        }
+        return new SessionStore(directory, syncIntervalMillis, snapshotInterval, chunkSize, stackFactory);
+    }
+
+    /**
+     * @return the stack as it was when the store was last used, whose changes are journaled
+     */
+    public CalculatorStack<OperationExecution> stack() {
+        return recoveredStack;
+    }
+
+    /**
+     * @return time taken to read the snapshot and replay the journal, in nanoseconds
+     */
+    public long recoveryNanos() {
+        return recoveryNanos;
+    }
+
+    /**
+     * @return the failure that stopped this store from writing, <code>null</code> if there was none
+     */
+    public @Nullable IOException failure() {
+        return failure;
+    }
+
+    /**
+     * Write the items of the given stack that changed since the last call, i.e. those above its low water mark. A
+     * record with no item truncates the stack, when items were only removed. A stack other than the one last
+     * journaled, e.g. a fork that was restored, is written whole. Does nothing once the store has failed.
+     */
+    synchronized void journal(final JournaledStack stack) {
+        if (failure != null) {
+            return;
+        }
+        try {
+            append(stack);
+        } catch (final IOException exception) {
+            fail(exception);
+        } catch (final UncheckedIOException exception) {
+            fail(exception.getCause());
+        } catch (final InternalError error) {
+            // thrown when writing to a mapped page fails, e.g. when the disk is full
+            fail(new IOException(error.getMessage(), error));
+        }
+    }
+
+    private void append(final JournaledStack stack) throws IOException {
+        final CalculatorStack<OperationExecution> items = stack.delegate();
+        final int from = stack == journaledStack ? items.lowWaterMark() : 0;
+        if (stack == journaledStack && from == items.size() && from == journaledSize) {
+            return;
+        }
+        journaledStack = stack;
+        journaledSize = items.size();
+        changedSinceSnapshot = true;
+        changedItems.clear();
+        items.forEach(from, changedItems::add);
+        int length = 1 + RealNumberCodec.varLongSize(from) + RealNumberCodec.varLongSize(changedItems.size());
+        for (final OperationExecution item : changedItems) {
+            length += StackCodec.encodedSize(item);
+        }
+        journal.append(length, body -> {
+            body.put(FORMAT_VERSION);
+            RealNumberCodec.putVarLong(body, from);
+            RealNumberCodec.putVarLong(body, changedItems.size());
+            for (final OperationExecution item : changedItems) {
+                StackCodec.encode(item, body);
+            }
+        });
+        changedItems.clear();
+        if (syncIntervalMillis == 0) {
+            journal.force();
+        }
+        if (journal.records() >= snapshotInterval || journal.size() >= MAX_JOURNAL_SIZE) {
+            startGeneration(items);
+        }
+    }
+
+    private void fail(final IOException exception) {
+        failure = exception;
+        if (syncExecutor != null) {
+            syncExecutor.shutdown();
+        }
+    }
+
+    private static void replay(final ByteBuffer record,
+                               final CalculatorStack<OperationExecution> stack) {
+        final byte version = record.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalStateException(String.format("Unsupported format version %d, expected %d",
+                    version, FORMAT_VERSION));
+        }
+        final int from = RealNumberCodec.getVarInt(record);
+        if (stack.size() > from) {
+            stack.pop(stack.size() - from);
+        }
+        StackCodec.decodeStack(record, stack);
+    }
+
+    /**
+     * Force the journal to the disk
+     */
+    synchronized void sync() {
+        if (failure != null) {
+            return;
+        }
+        try {
+            journal.force();
+        } catch (final UncheckedIOException exception) {
+            fail(exception.getCause());
+        } catch (final InternalError error) {
+            fail(new IOException(error.getMessage(), error));
+        }
+    }
+
+    /**
+     * Take a snapshot of the given items, and start a new journal
+     */
+    private void startGeneration(final CalculatorStack<OperationExecution> items) throws IOException {
+        final long next = generation + 1;
+        writeSnapshot(snapshotPath(next), items);
+        final JournalFile nextJournal = openJournal(journalPath(next), record -> {});
+        journal.close();
+        journal = nextJournal;
+        generation = next;
+        changedSinceSnapshot = false;
+        deleteOlderGenerations();
+    }
+
+    /**
+     * @throws IOException if the journal can't be opened, or holds a record that can't be read
+     */
+    private JournalFile openJournal(final Path path,
+                                    final Consumer<ByteBuffer> replay) throws IOException {
+        try {
+            return JournalFile.open(path, chunkSize, replay);
+        } catch (final RuntimeException exception) {
+            throw new IOException(String.format("Corrupted journal: %s (%s)", path, exception.getMessage()), exception);
+        }
+    }
+
+    private void writeSnapshot(final Path path,
+                               final CalculatorStack<OperationExecution> items) throws IOException {
+        final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final CRC32 crc = new CRC32();
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(SNAPSHOT_BUFFER_SIZE);
+            buffer.putInt(SNAPSHOT_MAGIC);
+            buffer.put(FORMAT_VERSION);
+            new StackCodec.Encoder(buffer, bytes -> {
+                crc.update(bytes.duplicate());
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            }).encodeStack(items, 0).flush();
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void readSnapshot(final Path path,
+                                     final CalculatorStack<OperationExecution> stack) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE || size < 2 * Integer.BYTES + 2) {
+                throw new IOException("Corrupted snapshot: " + path);
+            }
+            final MappedByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            final ByteBuffer items = content.duplicate();
+            items.limit((int) size - Integer.BYTES);
+            final CRC32 crc = new CRC32();
+            crc.update(items.duplicate());
+            if (items.getInt() != SNAPSHOT_MAGIC || (int) crc.getValue() != content.getInt((int) size - Integer.BYTES)) {
+                throw new IOException("Corrupted snapshot: " + path);
+            }
+            final byte version = items.get();
+            if (version != FORMAT_VERSION) {
+                throw new IOException(String.format("Snapshot %s has unsupported format version %d, expected %d",
+                        path, version, FORMAT_VERSION));
+            }
+            StackCodec.decodeStack(items, stack);
+        } catch (final RuntimeException exception) {
+            throw new IOException("Corrupted snapshot: " + path, exception);
+        }
+    }
+
+    /**
+     * @return generation of the latest snapshot, -1 if there is none
+     */
+    private long latestSnapshot() throws IOException {
+        long latest = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SNAPSHOT_PREFIX + "*")) {
+            for (final Path file : files) {
+                latest = Math.max(latest, generationOf(file, SNAPSHOT_PREFIX));
+            }
+        }
+        return latest;
+    }
+
+    private void deleteOlderGenerations() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (final Path file : files) {
+                final long fileGeneration = Math.max(generationOf(file, SNAPSHOT_PREFIX), generationOf(file, JOURNAL_PREFIX));
+                if (fileGeneration >= 0 && fileGeneration < generation) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return generation of a file of the store with the given prefix, -1 for any other file, e.g. a temporary
+     * snapshot
+     */
+    private static long generationOf(final Path file,
+                                     final String prefix) {
+        final String name = file.getFileName().toString();
+        if (!name.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(prefix.length()));
+        } catch (final NumberFormatException exception) {
+            return -1;
+        }
+    }
+
+    private Path snapshotPath(final long generation) {
+        return directory.resolve(SNAPSHOT_PREFIX + generation);
+    }
+
+    private Path journalPath(final long generation) {
+        return directory.resolve(JOURNAL_PREFIX + generation);
+    }
+
+    /**
+     * Stop forcing the journal, and take a snapshot if the stack changed since the last one, so that the next
+     * {@link #open(Path)} does not have to replay it. Once the store has failed, only releases the journal.
+     *
+     * @throws IOException if the snapshot can't be written, unless the store has failed already
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (syncExecutor != null) {
+            syncExecutor.shutdownNow();
+        }
+        if (failure != null) {
+            try {
+                journal.close();
+            } catch (final IOException exception) {
+                failure.addSuppressed(exception);
+            }
+            return;
+        }
+        if (changedSinceSnapshot) {
+            startGeneration(journaledStack.delegate());
+        }
+        journal.close();
+    }
+}
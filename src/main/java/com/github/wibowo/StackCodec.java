@@ -0,0 +1,250 @@
+package com.github.wibowo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Binary form of the items of a {@link CalculatorStack}, with what is needed to undo them.
+ *
+ * An item is the code of its operation, one byte, and its result. Unless it is an {@link Operation#Push}, whose
+ * argument is its result, it is followed by the varint count of its arguments, and the arguments, FIRST_ARG first.
+ * Numbers are encoded by {@link RealNumberCodec}. A stack is the varint count of its items, then the items, bottom
+ * first.
+ *
+ * Items are read and written at the position of the buffer, which is moved past them.
+ *
+ * Codes are part of the format, unlike the order of the constants of {@link Operation}, which changes when an
+ * operation is added: a code must never be changed or reused. Only the operations that can be on a stack have one.
+ */
+final class StackCodec {
+
+    private static final int NO_CODE = -1;
+
+    /**
+     * Code of each operation, by ordinal
+     */
+    private static final byte[] CODES = new byte[Operation.values().length];
+
+    /**
+     * Operation of each code, from 0 to 127
+     */
+    private static final Operation[] OPERATIONS = new Operation[Byte.MAX_VALUE + 1];
+
+    static {
+        Arrays.fill(CODES, (byte) NO_CODE);
+        register(Operation.Push, 0);
+        register(Operation.Plus, 1);
+        register(Operation.Minus, 2);
+        register(Operation.Multiply, 3);
+        register(Operation.Divide, 4);
+        register(Operation.Sqrt, 5);
+        register(Operation.Sum, 6);
+        register(Operation.Product, 7);
+        register(Operation.Mean, 8);
+        register(Operation.Min, 9);
+        register(Operation.Max, 10);
+        register(Operation.SumOfSquares, 11);
+    }
+
+    private StackCodec() {}
+
+    private static void register(final Operation operation,
+                                 final int code) {
+        CODES[operation.ordinal()] = (byte) code;
+        OPERATIONS[code] = operation;
+    }
+
+    /**
+     * @return code of the given operation
+     * @throws IllegalStateException if the operation can't be on a stack, so it has no code
+     */
+    static byte code(final Operation operation) {
+        final byte code = CODES[operation.ordinal()];
+        if (code == NO_CODE) {
+            throw new IllegalStateException("No code for operation: " + operation);
+        }
+        return code;
+    }
+
+    /**
+     * @return operation of the given code
+     * @throws IllegalStateException if no operation has this code
+     */
+    static Operation operation(final int code) {
+        final Operation operation = code >= 0 && code < OPERATIONS.length ? OPERATIONS[code] : null;
+        if (operation == null) {
+            throw new IllegalStateException("Invalid operation code: " + code);
+        }
+        return operation;
+    }
+
+    /**
+     * @return number of bytes {@link #encode(OperationExecution, ByteBuffer)} writes for the given item
+     */
+    static int encodedSize(final OperationExecution item) {
+        int size = 1 + RealNumberCodec.encodedSize(item.getResult());
+        if (item.getOperation() != Operation.Push) {
+            final List<RealNumber> arguments = item.getArguments();
+            size += RealNumberCodec.varLongSize(arguments.size());
+            for (final RealNumber argument : arguments) {
+                size += RealNumberCodec.encodedSize(argument);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @param target buffer with at least {@link #encodedSize(OperationExecution)} bytes remaining
+     */
+    static void encode(final OperationExecution item,
+                       final ByteBuffer target) {
+        final Operation operation = item.getOperation();
+        target.put(code(operation));
+        RealNumberCodec.encode(item.getResult(), target);
+        if (operation == Operation.Push) {
+            return;
+        }
+        final List<RealNumber> arguments = item.getArguments();
+        RealNumberCodec.putVarLong(target, arguments.size());
+        for (final RealNumber argument : arguments) {
+            RealNumberCodec.encode(argument, target);
+        }
+    }
+
+    /**
+     * @return the item read from the given buffer, with the same operation, result and arguments as the one encoded
+     */
+    static OperationExecution decode(final ByteBuffer source) {
+        final Operation operation = operation(source.get());
+        final RealNumber result = RealNumberCodec.decode(source);
+        if (operation == Operation.Push) {
+            return new OperationExecution(Operation.Push, result);
+        }
+        final int count = RealNumberCodec.getVarInt(source);
+        final List<RealNumber> arguments = new ArrayList<>(Math.min(count, source.remaining()));
+        for (int i = 0; i < count; i++) {
+            arguments.add(RealNumberCodec.decode(source));
+        }
+        return OperationExecution.restored(operation, arguments, result);
+    }
+
+    /**
+     * Read a stack, pushing its items onto the given one
+     *
+     * @return number of items read
+     */
+    static int decodeStack(final ByteBuffer source,
+                           final CalculatorStack<OperationExecution> stack) {
+        final int count = RealNumberCodec.getVarInt(source);
+        for (int i = 0; i < count; i++) {
+            stack.push(decode(source));
+        }
+        return count;
+    }
+
+    /**
+     * Where an {@link Encoder} sends its buffer when it is full
+     */
+    @FunctionalInterface
+    interface Sink {
+        /**
+         * Consume the bytes of the given buffer, from its position to its limit
+         */
+        void write(ByteBuffer bytes) throws IOException;
+    }
+
+    /**
+     * Writes a stack of any size through a buffer of fixed size, handing it to a {@link Sink} whenever it is full.
+     * Items are split across buffers, numbers are not: a number larger than the buffer is written through a buffer of
+     * its own. Not thread safe.
+     */
+    static final class Encoder {
+
+        private final ByteBuffer buffer;
+
+        private final Sink sink;
+
+        /**
+         * @param buffer buffer to encode into, e.g. a direct buffer to be written to a channel without copy
+         */
+        Encoder(final ByteBuffer buffer,
+                final Sink sink) {
+            this.buffer = buffer;
+            this.sink = sink;
+        }
+
+        /**
+         * Write the items of the given stack from the given index up to the top, as a stack
+         */
+        Encoder encodeStack(final CalculatorStack<OperationExecution> stack,
+                            final int from) throws IOException {
+            ensureRemaining(RealNumberCodec.varLongSize(stack.size() - from));
+            RealNumberCodec.putVarLong(buffer, stack.size() - from);
+            try {
+                // visited rather than read by index, which is O(depth) for a PersistentRPNStack
+                stack.forEach(from, item -> {
+                    try {
+                        encode(item);
+                    } catch (final IOException exception) {
+                        throw new UncheckedIOException(exception);
+                    }
+                });
+            } catch (final UncheckedIOException exception) {
+                throw exception.getCause();
+            }
+            return this;
+        }
+
+        Encoder encode(final OperationExecution item) throws IOException {
+            final Operation operation = item.getOperation();
+            ensureRemaining(1);
+            buffer.put(code(operation));
+            encode(item.getResult());
+            if (operation == Operation.Push) {
+                return this;
+            }
+            final List<RealNumber> arguments = item.getArguments();
+            ensureRemaining(RealNumberCodec.varLongSize(arguments.size()));
+            RealNumberCodec.putVarLong(buffer, arguments.size());
+            for (final RealNumber argument : arguments) {
+                encode(argument);
+            }
+            return this;
+        }
+
+        private void encode(final RealNumber number) throws IOException {
+            final int size = RealNumberCodec.encodedSize(number);
+            if (size > buffer.capacity()) {
+                flush();
+                final ByteBuffer large = ByteBuffer.allocate(size);
+                RealNumberCodec.encode(number, large);
+                large.flip();
+                sink.write(large);
+                return;
+            }
+            ensureRemaining(size);
+            RealNumberCodec.encode(number, buffer);
+        }
+
+        private void ensureRemaining(final int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        /**
+         * Hand what is encoded so far to the sink
+         */
+        void flush() throws IOException {
+            buffer.flip();
+            if (buffer.hasRemaining()) {
+                sink.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
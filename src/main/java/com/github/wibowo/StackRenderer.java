@@ -0,0 +1,111 @@
+package com.github.wibowo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+/**
+ * Renders the stack shown to user after each line.
+ *
+ * <ul>
+ *     <li>full: every item, e.g. <code>stack: 1 2 3</code></li>
+ *     <li>incremental: only the items that changed since the last render, from the index of the first one,
+ *     e.g. <code>stack (from 2): 3</code>. Items below that index are the same as in the last render.</li>
+ *     <li>windowed: the number of items, and only the top ones, e.g. <code>stack (depth 3): ... 2 3</code></li>
+ * </ul>
+ *
+ * The incremental and windowed renders cost O(items shown) instead of O(stack size).
+ */
+public final class StackRenderer {
+
+    public static final StackRenderer FULL = new StackRenderer(Mode.Full, 0);
+
+    public static final StackRenderer INCREMENTAL = new StackRenderer(Mode.Incremental, 0);
+
+    private static final String WINDOWED_PREFIX = "window:";
+
+    private enum Mode {
+        Full,
+        Incremental,
+        Windowed
+    }
+
+    private final Mode mode;
+
+    /**
+     * Number of items shown by the windowed render
+     */
+    private final int window;
+
+    private StackRenderer(final Mode mode,
+                          final int window) {
+        this.mode = mode;
+        this.window = window;
+    }
+
+    /**
+     * @param window number of items to show, from the top of the stack
+     * @return renderer showing only the top items
+     */
+    public static StackRenderer windowed(final int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Window must be at least 1. Received: " + window);
+        }
+        return new StackRenderer(Mode.Windowed, window);
+    }
+
+    /**
+     * @param specification <code>full</code>, <code>incremental</code>, or <code>window:&lt;number of items&gt;</code>
+     * @return the matching renderer
+     */
+    public static StackRenderer parse(final @NotNull String specification) {
+        Objects.requireNonNull(specification);
+        if ("full".equals(specification)) {
+            return FULL;
+        }
+        if ("incremental".equals(specification)) {
+            return INCREMENTAL;
+        }
+        if (specification.startsWith(WINDOWED_PREFIX)) {
+            try {
+                return windowed(Integer.parseInt(specification.substring(WINDOWED_PREFIX.length())));
+            } catch (final NumberFormatException exception) {
+                // reported below
+            }
+        }
+        throw new IllegalArgumentException("Unsupported stack rendering: [" + specification + "]");
+    }
+
+    /**
+     * @param stack stack to render
+     * @param unchangedSize number of items, from the bottom of the stack, that did not change since the last render
+     * @return the rendered stack
+     */
+    public String render(final CalculatorStack<?> stack,
+                         final int unchangedSize) {
+        switch (mode) {
+            case Incremental:
+                return appendItems(new StringBuilder("stack (from ").append(unchangedSize).append("): "), stack, unchangedSize);
+            case Windowed:
+                final int from = Math.max(0, stack.size() - window);
+                final StringBuilder builder = new StringBuilder("stack (depth ").append(stack.size()).append("): ");
+                if (from > 0) {
+                    builder.append("... ");
+                }
+                return appendItems(builder, stack, from);
+            default:
+                return stack.toString();
+        }
+    }
+
+    private static String appendItems(final StringBuilder builder,
+                                      final CalculatorStack<?> stack,
+                                      final int from) {
+        final int length = builder.length();
+        stack.forEach(from, item -> builder.append(item).append(' '));
+        if (builder.length() > length) {
+            builder.setLength(builder.length() - 1);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,289 @@
+package com.github.wibowo;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Specialized evaluator for a {@link CompiledProgram} that is executed often. It is only built for programs
+ * consisting of numbers and arithmetic operations.
+ *
+ * The program is turned into one expression tree per item it leaves on the stack, and each tree is turned into a
+ * {@link MethodHandle} chain calling the {@link Operation} arithmetic directly. Intermediate results are passed from
+ * one handle to the next, without {@link OperationExecution} or stack manipulation. Only the final items are pushed
+ * onto the real stack, as {@link OperationExecution} of the last operation that produced them, which is exactly what
+ * the interpreter would leave on the stack. That keeps undo behaving the same.
+ *
+ * Nothing is changed on the stack until all final items have been computed. When an operation fails, or when the
+ * stack does not have enough items, the evaluator gives up and lets the interpreter execute the program, so that the
+ * warnings and the stack are the same as without this evaluator.
+ */
+final class StraightLineEvaluator {
+
+    /**
+     * Number of executions after which a program gets its own evaluator. Can be overridden with the
+     * <code>rpn.evaluator.threshold</code> system property. A negative value disables specialized evaluators.
+     */
+    static final int DEFAULT_THRESHOLD = Integer.getInteger("rpn.evaluator.threshold", 1000);
+
+    /**
+     * Longer programs are left to the interpreter, to keep the handle chains shallow
+     */
+    static final int MAX_PROGRAM_SIZE = 256;
+
+    private static final MethodType EXPRESSION_TYPE = MethodType.methodType(RealNumber.class, Precision.class, RealNumber[].class);
+
+    private static final MethodHandle APPLY_UNARY;
+
+    private static final MethodHandle APPLY_BINARY;
+
+    private static final MethodHandle ROUND;
+
+    private static final MethodHandle INPUT = MethodHandles.arrayElementGetter(RealNumber[].class);
+
+    static {
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            APPLY_UNARY = lookup.findVirtual(Operation.class, "apply",
+                    MethodType.methodType(RealNumber.class, Precision.class, RealNumber.class));
+            APPLY_BINARY = lookup.findVirtual(Operation.class, "apply",
+                    MethodType.methodType(RealNumber.class, Precision.class, RealNumber.class, RealNumber.class));
+            ROUND = lookup.findVirtual(Precision.class, "round",
+                    MethodType.methodType(RealNumber.class, RealNumber.class));
+        } catch (final ReflectiveOperationException exception) {
+            throw new ExceptionInInitializerError(exception);
+        }
+    }
+
+    /**
+     * Number of items taken from the stack, i.e. items that were there before the program is executed
+     */
+    private final int inputCount;
+
+    /**
+     * Operation producing each final item, bottom of the stack first
+     */
+    private final Operation[] operations;
+
+    /**
+     * Number for the final items produced by {@link Operation#Push}
+     */
+    private final RealNumber[] constants;
+
+    /**
+     * Handles computing the arguments of the operation producing each final item, FIRST_ARG first.
+     * Each handle takes the precision, and the input items, top of the stack first.
+     */
+    private final MethodHandle[][] arguments;
+
+    /**
+     * Operations of the program, and the number of times each one is executed
+     */
+    private final Operation[] executedOperations;
+
+    private final int[] executions;
+
+    private StraightLineEvaluator(final int inputCount,
+                                  final Operation[] operations,
+                                  final RealNumber[] constants,
+                                  final MethodHandle[][] arguments,
+                                  final Map<Operation, Integer> executions) {
+        this.inputCount = inputCount;
+        this.operations = operations;
+        this.constants = constants;
+        this.arguments = arguments;
+        this.executedOperations = executions.keySet().toArray(new Operation[0]);
+        this.executions = new int[executedOperations.length];
+        for (int i = 0; i < executedOperations.length; i++) {
+            this.executions[i] = executions.get(executedOperations[i]);
+        }
+    }
+
+    /**
+     * @param program program to be specialized
+     * @return evaluator for the program, or <code>null</code> if the program can't be specialized
+     */
+    static @Nullable StraightLineEvaluator of(final CompiledProgram program) {
+        if (program.size() == 0 || program.size() > MAX_PROGRAM_SIZE) {
+            return null;
+        }
+
+        // simulate the stack, with expression trees instead of values
+        final List<Node> stack = new ArrayList<>();
+        final Map<Operation, Integer> executions = new EnumMap<>(Operation.class);
+        int inputCount = 0;
+        for (int i = 0; i < program.size(); i++) {
+            final Operation operation = program.operation(i);
+            if (operation == Operation.Push) {
+                stack.add(new Node(operation, program.constant(i), -1));
+            } else if (isArithmetic(operation)) {
+                executions.merge(operation, 1, Integer::sum);
+                final Node[] children = new Node[operation.numArguments];
+                for (int argument = 0; argument < operation.numArguments; argument++) {
+                    children[argument] = stack.isEmpty()
+                            ? new Node(null, null, inputCount++)
+                            : stack.remove(stack.size() - 1);
+                }
+                stack.add(new Node(operation, null, -1, children));
+            } else {
+                return null;
+            }
+        }
+
+        final int size = stack.size();
+        final Operation[] operations = new Operation[size];
+        final RealNumber[] constants = new RealNumber[size];
+        final MethodHandle[][] arguments = new MethodHandle[size][];
+        for (int i = 0; i < size; i++) {
+            final Node node = stack.get(i);
+            operations[i] = node.operation;
+            constants[i] = node.constant;
+            arguments[i] = new MethodHandle[node.children.length];
+            for (int argument = 0; argument < node.children.length; argument++) {
+                arguments[i][argument] = node.children[argument].toMethodHandle();
+            }
+        }
+        final int pushes = program.size() - executions.values().stream().mapToInt(Integer::intValue).sum();
+        if (pushes > 0) {
+            executions.put(Operation.Push, pushes);
+        }
+        return new StraightLineEvaluator(inputCount, operations, constants, arguments, executions);
+    }
+
+    private static boolean isArithmetic(final Operation operation) {
+        return operation.pushArgumentsOnUndo && (operation.numArguments == 1 || operation.numArguments == 2);
+    }
+
+    /**
+     * @param operationExecutions stack to execute the program on
+     * @param precision precision of the arithmetic
+     * @return <code>true</code> if the program was executed, <code>false</code> if it has to be executed by the
+     * interpreter instead. Nothing is changed on the stack in the later case.
+     */
+    boolean execute(final CalculatorStack<OperationExecution> operationExecutions,
+                    final Precision precision) {
+        if (operationExecutions.size() < inputCount) {
+            return false;
+        }
+        final RealNumber[] inputs = new RealNumber[inputCount];
+        for (int depth = 0; depth < inputCount; depth++) {
+            inputs[depth] = operationExecutions.peek(depth).getResult();
+        }
+
+        final OperationExecution[] results = new OperationExecution[operations.length];
+        try {
+            for (int i = 0; i < operations.length; i++) {
+                if (operations[i] == Operation.Push) {
+                    results[i] = new OperationExecution(Operation.Push, precision.round(constants[i]));
+                } else {
+                    final RealNumber[] values = new RealNumber[arguments[i].length];
+                    for (int argument = 0; argument < values.length; argument++) {
+                        values[argument] = (RealNumber) arguments[i][argument].invokeExact(precision, inputs);
+                    }
+                    final List<RealNumber> operationArguments = Arrays.asList(values);
+                    if (operations[i].domainError(operationArguments) != null) {
+                        // let the interpreter report it, without throwing
+                        return false;
+                    }
+                    results[i] = new OperationExecution(operations[i], operationArguments, precision);
+                }
+            }
+        } catch (final WrongMethodTypeException failure) {
+            throw new AssertionError("Compiled program does not match its method handles", failure);
+        } catch (final RuntimeException failure) {
+            // an evaluation failure, e.g. an overflow in Binary64: let the interpreter report it
+            return false;
+        } catch (final Error error) {
+            throw error;
+        } catch (final Throwable failure) {
+            // the method handles only throw what the operations throw
+            throw new AssertionError("Unexpected failure of compiled program", failure);
+        }
+
+        if (inputCount > 0) {
+            operationExecutions.pop(inputCount);
+        }
+        for (final OperationExecution result : results) {
+            operationExecutions.push(result);
+        }
+        return true;
+    }
+
+    /**
+     * Record the operations executed by the program, as if they were executed by the interpreter. Their evaluation
+     * latency is not recorded, as the operations are not evaluated one by one.
+     */
+    void recordInvocations(final Metrics metrics) {
+        for (int i = 0; i < executedOperations.length; i++) {
+            metrics.recordInvocations(executedOperations[i], executions[i]);
+        }
+    }
+
+    /**
+     * Node of the expression tree: a number, an item taken from the stack, or an operation
+     */
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private final Operation operation;
+
+        private final RealNumber constant;
+
+        /**
+         * Depth of the input item in the stack, for items taken from the stack
+         */
+        private final int input;
+
+        /**
+         * Arguments of the operation, FIRST_ARG first
+         */
+        private final Node[] children;
+
+        private Node(final Operation operation,
+                     final RealNumber constant,
+                     final int input) {
+            this(operation, constant, input, NO_CHILDREN);
+        }
+
+        private Node(final Operation operation,
+                     final RealNumber constant,
+                     final int input,
+                     final Node[] children) {
+            this.operation = operation;
+            this.constant = constant;
+            this.input = input;
+            this.children = children;
+        }
+
+        /**
+         * @return handle of type <code>(Precision precision, RealNumber[] inputs) -&gt; RealNumber</code> computing
+         * this node
+         */
+        private MethodHandle toMethodHandle() {
+            if (operation == null) {
+                return MethodHandles.dropArguments(MethodHandles.insertArguments(INPUT, 1, input), 0, Precision.class);
+            }
+            if (operation == Operation.Push) {
+                // numbers are rounded to the precision when pushed
+                return MethodHandles.dropArguments(MethodHandles.insertArguments(ROUND, 1, constant), 1, RealNumber[].class);
+            }
+            if (children.length == 1) {
+                final MethodHandle unary = MethodHandles.collectArguments(APPLY_UNARY.bindTo(operation), 1,
+                        children[0].toMethodHandle());
+                return MethodHandles.permuteArguments(unary, EXPRESSION_TYPE, 0, 0, 1);
+            }
+            final MethodHandle second = MethodHandles.collectArguments(APPLY_BINARY.bindTo(operation), 2,
+                    children[1].toMethodHandle());
+            final MethodHandle binary = MethodHandles.collectArguments(second, 1, children[0].toMethodHandle());
+            return MethodHandles.permuteArguments(binary, EXPRESSION_TYPE, 0, 0, 1, 0, 1);
+        }
+    }
+}
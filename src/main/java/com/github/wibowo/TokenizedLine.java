@@ -0,0 +1,143 @@
+package com.github.wibowo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Command line given by user, split into whitespace separated tokens.
+ * A command line consists of one or more tokens.
+ * e.g.:
+ * command line "5 2" consists of two tokens, "5" and "2"
+ * command line "5 2 +" consists of three tokens, "5", "2" and "+"
+ *
+ * The line is scanned once, and only the start and end offset of each token is recorded. No regex is involved,
+ * and the token string is only created when asked for through {@link #token(int)}. The recorded offsets are
+ * used to report the position of a token in the original line.
+ */
+public final class TokenizedLine {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final String line;
+
+    private int[] starts;
+
+    private int[] ends;
+
+    private int size;
+
+    private TokenizedLine(final String line) {
+        this.line = line;
+        this.starts = new int[INITIAL_CAPACITY];
+        this.ends = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Split the given line into tokens.
+     *
+     * @param line command line
+     * @return tokens of the line, in the order they appear
+     */
+    public static TokenizedLine tokenize(final @NotNull String line) {
+        Objects.requireNonNull(line);
+        final TokenizedLine tokenizedLine = new TokenizedLine(line);
+        final int length = line.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            final int start = i;
+            while (i < length && !isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            tokenizedLine.add(start, i);
+        }
+        return tokenizedLine;
+    }
+
+    /**
+     * Same set of characters as the regex <code>\s</code>, which used to be used for splitting the line.
+     */
+    private static boolean isWhitespace(final char character) {
+        return character == ' '
+                || character == '\t'
+                || character == '\n'
+                || character == '\u000B'
+                || character == '\f'
+                || character == '\r';
+    }
+
+    private void add(final int start, final int end) {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+        }
+        starts[size] = start;
+        ends[size] = end;
+        size++;
+    }
+
+    public String line() {
+        return line;
+    }
+
+    /**
+     * @return number of tokens in the line
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param tokenIndex 0 based index of the token
+     * @return 0 based offset of the first character of the token in the original line
+     */
+    public int start(final int tokenIndex) {
+        checkIndex(tokenIndex);
+        return starts[tokenIndex];
+    }
+
+    /**
+     * @param tokenIndex 0 based index of the token
+     * @return 0 based offset of the character following the token in the original line
+     */
+    public int end(final int tokenIndex) {
+        checkIndex(tokenIndex);
+        return ends[tokenIndex];
+    }
+
+    /**
+     * Given command line "5 2 +", and tokenIndex of 2, this method will return the position of "+" operation in the
+     * command line string, which is 5 (return value starts from 1)
+     *
+     * @param tokenIndex 0 based index of the token
+     * @return string index of token in the original line, 1-based.
+     */
+    public int position(final int tokenIndex) {
+        return start(tokenIndex) + 1;
+    }
+
+    /**
+     * @param tokenIndex 0 based index of the token
+     * @return the token itself
+     */
+    public String token(final int tokenIndex) {
+        checkIndex(tokenIndex);
+        return line.substring(starts[tokenIndex], ends[tokenIndex]);
+    }
+
+    private void checkIndex(final int tokenIndex) {
+        if (tokenIndex < 0 || tokenIndex >= size) {
+            throw new IllegalArgumentException(
+                    String.format(
+                            "Unable to find token with index [%d] in line [%s]. This might be a programming issue.",
+                            tokenIndex, line
+                    ));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.wibowo
+
+import java.util.concurrent.TimeUnit
+
+/**
+ * Outcome of processing a file of command lines in batch mode.
+ *
+ * @param lines: number of (non blank) lines evaluated
+ * @param elapsedNanos: time taken to read, evaluate and write all lines
+ * @param workers: lines evaluated by each worker thread, when lines are evaluated in parallel
+ */
+data class BatchSummary @JvmOverloads constructor(
+        val lines: Long,
+        val elapsedNanos: Long,
+        val workers: List<WorkerSummary> = emptyList()) {
+
+    val linesPerSecond: Double
+        get() = perSecond(lines, elapsedNanos)
+
+    override fun toString(): String {
+        return String.format("Processed %d lines in %d ms (%.0f lines/sec)",
+                lines, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), linesPerSecond)
+    }
+}
+
+/**
+ * Lines evaluated by a single worker thread.
+ *
+ * @param name: name of the worker thread
+ * @param lines: number of lines evaluated by the worker
+ * @param busyNanos: time the worker spent evaluating lines
+ */
+data class WorkerSummary(
+        val name: String,
+        val lines: Long,
+        val busyNanos: Long) {
+
+    val linesPerSecond: Double
+        get() = perSecond(lines, busyNanos)
+
+    override fun toString(): String {
+        return String.format("%s: %d lines in %d ms (%.0f lines/sec)",
+                name, lines, TimeUnit.NANOSECONDS.toMillis(busyNanos), linesPerSecond)
+    }
+}
+
+private fun perSecond(count: Long, nanos: Long): Double =
+        if (nanos == 0L) 0.0 else count * TimeUnit.SECONDS.toNanos(1).toDouble() / nanos
@@ -9,5 +9,9 @@ package com.github.wibowo
  */
 enum class CommandExecutionStatus {
     Success,
-    Failed
+    Failed,
+    /**
+     * User asked to quit. Remaining tokens are not processed.
+     */
+    Quit
 }
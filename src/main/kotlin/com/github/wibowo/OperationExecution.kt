@@ -1,26 +1,123 @@
 package com.github.wibowo
 
+import java.util.ArrayDeque
+
 /**
  * A snapshot of operation execution. Having this snapshot allows us to rollback with exact
  * parameter used to perform the execution. E.g. for [Operation.Undo] or when we want to rollback
  * due to arithmetic exception.
  *
+ * A deferred execution (see [deferred]) records the executions it takes its arguments from instead of their
+ * results, and computes its result only when it is first needed. A chain of deferred executions of the same
+ * associative operation, i.e. additions such as `1 2 + 3 + 4 +`, is then computed in one pass, with a single rounding.
+ *
  * @param operation: Operation that was attempted
- * @param arguments: arguments required by the operation
+ * @param argumentValues: arguments required by the operation, once known
+ * @param operands: executions the arguments are taken from, for deferred executions
+ * @param precision: precision of the arithmetic, only used to compute the result
+ * @param value: result of the operation, once computed
  */
-class OperationExecution(
+class OperationExecution private constructor(
         val operation: Operation,
-        val arguments: List<RealNumber>) {
+        private var argumentValues: List<RealNumber>?,
+        private val operands: List<OperationExecution>?,
+        private val precision: Precision,
+        private var value: RealNumber?) {
 
     /**
-     * Result of the operation execution
+     * @param operation: Operation that was attempted
+     * @param arguments: arguments required by the operation
+     * @param precision: precision of the arithmetic, only used to compute the result
      */
-    val result: RealNumber = operation.evaluate(this.arguments)
+    @JvmOverloads
+    constructor(operation: Operation,
+                arguments: List<RealNumber>,
+                precision: Precision = Precision.DEFAULT)
+            : this(operation, arguments, null, precision, operation.evaluate(arguments, precision))
 
     constructor(operation: Operation,
                 arguments: RealNumber) : this(operation, listOf(arguments))
 
+    /**
+     * Arguments required by the operation
+     */
+    val arguments: List<RealNumber>
+        get() = argumentValues ?: operands!!.map { it.result }.also { argumentValues = it }
+
+    /**
+     * Result of the operation execution
+     */
+    val result: RealNumber
+        get() = value ?: evaluateChain().also { value = it }
+
+    /**
+     * `false` for a deferred execution whose result has not been computed yet
+     */
+    val isEvaluated: Boolean
+        get() = value != null
+
+    /**
+     * Combine the results at the leaves of the chain of unevaluated executions of the same operation ending here.
+     * Executions in the middle of the chain are left unevaluated. Leaves are always evaluated already, see [deferred],
+     * so this does not recurse.
+     */
+    private fun evaluateChain(): RealNumber {
+        val leaves = ArrayList<RealNumber>()
+        val pending = ArrayDeque<OperationExecution>(operands)
+        while (pending.isNotEmpty()) {
+            val operand = pending.pop()
+            if (operand.isFusibleInto(operation, precision)) {
+                pending.addAll(operand.operands!!)
+            } else {
+                leaves.add(operand.result)
+            }
+        }
+        return operation.applyAll(precision, leaves)
+    }
+
+    private fun isFusibleInto(operation: Operation, precision: Precision): Boolean =
+            value == null && this.operation == operation && this.precision == precision
+
     override fun toString(): String {
         return result.toString()
     }
+
+    companion object {
+        /**
+         * Execution read back from storage, with the arguments and the result it was computed with, without
+         * computing it again
+         *
+         * @param operation: Operation that was attempted
+         * @param arguments: arguments required by the operation
+         * @param result: result of the operation execution
+         */
+        @JvmStatic
+        fun restored(operation: Operation,
+                     arguments: List<RealNumber>,
+                     result: RealNumber): OperationExecution =
+                OperationExecution(operation, arguments, null, Precision.DEFAULT, result)
+
+        /**
+         * Execution of an [Operation.isAssociative] operation, whose result is computed when first needed.
+         * Operands that can't be part of the same chain are evaluated now, so that chains never nest.
+         *
+         * @param operation: Operation that was attempted, must be associative
+         * @param operands: executions the arguments are taken from, FIRST_ARG first
+         * @param precision: precision of the arithmetic, must be [Precision.isDeferrable]
+         */
+        @JvmStatic
+        fun deferred(operation: Operation,
+                     operands: List<OperationExecution>,
+                     precision: Precision): OperationExecution {
+            require(operation.isAssociative && precision.isDeferrable) {
+                "$operation operation can't be deferred with $precision precision"
+            }
+            for (operand in operands) {
+                if (!operand.isFusibleInto(operation, precision)) {
+                    operand.result
+                }
+            }
+            return OperationExecution(operation, null, ArrayList(operands), precision, null)
+        }
+    }
 }
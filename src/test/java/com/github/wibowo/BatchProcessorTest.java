@@ -0,0 +1,125 @@
+package com.github.wibowo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchProcessorTest {
+
+    private Path input;
+    private Path output;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        input = Files.createTempFile("rpn-input", ".txt");
+        output = Files.createTempFile("rpn-output", ".txt");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(input);
+        Files.deleteIfExists(output);
+    }
+
+    @Test
+    void each_line_is_evaluated_against_empty_stack() throws IOException {
+        givenInput("5 2 +\n" +
+                "3 *\n" +
+                "1 2 3 4 5 * * * *\n");
+
+        final BatchSummary summary = BatchProcessor.process(input, output);
+
+        assertThat(summary.getLines()).isEqualTo(3L);
+        assertThat(readOutput()).containsExactly(
+                "stack: 7",
+                "operator * (position: 3): insufficient parameters",
+                "stack: 3",
+                "stack: 120");
+    }
+
+    @Test
+    void skips_blank_lines_and_handles_missing_trailing_new_line() throws IOException {
+        givenInput("5 2 +\r\n" +
+                "\n" +
+                "   \n" +
+                "2 sqrt");
+
+        final BatchSummary summary = BatchProcessor.process(input, output);
+
+        assertThat(summary.getLines()).isEqualTo(2L);
+        assertThat(readOutput()).containsExactly(
+                "stack: 7",
+                "stack: 1.4142135623");
+    }
+
+    @Test
+    void quit_only_ends_the_current_line() throws IOException {
+        givenInput("5 quit 2\n" +
+                "1 0 /\n");
+
+        BatchProcessor.process(input, output);
+
+        assertThat(readOutput()).containsExactly(
+                "stack: 5",
+                "operator / (position: 5): operation execution failed due to: [/ by zero]",
+                "stack: 1 0");
+    }
+
+    @Test
+    void empty_input_produces_empty_output() throws IOException {
+        givenInput("");
+
+        final BatchSummary summary = BatchProcessor.process(input, output);
+
+        assertThat(summary.getLines()).isEqualTo(0L);
+        assertThat(readOutput()).isEmpty();
+    }
+
+    @Test
+    void batch_mode_exits_with_zero_on_success() throws IOException {
+        givenInput("5 2 +\n");
+
+        assertThat(RPNCalculator.runBatch(new String[]{RPNCalculator.BATCH_OPTION, input.toString(), output.toString()}))
+                .isEqualTo(0);
+        assertThat(readOutput()).containsExactly("stack: 7");
+    }
+
+    @Test
+    void batch_mode_exits_with_failure_when_input_can_not_be_read() throws IOException {
+        Files.delete(input);
+
+        assertThat(RPNCalculator.runBatch(new String[]{RPNCalculator.BATCH_OPTION, input.toString(), output.toString()}))
+                .isEqualTo(RPNCalculator.EXIT_FAILURE);
+        assertThat(RPNCalculator.runBatch(new String[]{RPNCalculator.BATCH_OPTION, input.toString(), output.toString(),
+                RPNCalculator.PARALLELISM_OPTION, "2"}))
+                .isEqualTo(RPNCalculator.EXIT_FAILURE);
+    }
+
+    @Test
+    void batch_mode_exits_with_usage_error_on_invalid_arguments() {
+        assertThat(RPNCalculator.runBatch(new String[]{RPNCalculator.BATCH_OPTION, input.toString()}))
+                .isEqualTo(RPNCalculator.EXIT_USAGE);
+        assertThat(RPNCalculator.runBatch(new String[]{RPNCalculator.BATCH_OPTION, input.toString(), output.toString(),
+                RPNCalculator.PARALLELISM_OPTION, "none"}))
+                .isEqualTo(RPNCalculator.EXIT_USAGE);
+        assertThat(RPNCalculator.runBatch(new String[]{RPNCalculator.BATCH_OPTION, input.toString(), output.toString(),
+                RPNCalculator.PARALLELISM_OPTION, "0"}))
+                .isEqualTo(RPNCalculator.EXIT_USAGE);
+    }
+
+    private void givenInput(final String content) throws IOException {
+        Files.write(input, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<String> readOutput() throws IOException {
+        return Files.readAllLines(output, StandardCharsets.UTF_8);
+    }
+}
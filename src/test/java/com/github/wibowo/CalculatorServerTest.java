@@ -0,0 +1,157 @@
+package com.github.wibowo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CalculatorServerTest {
+
+    private CalculatorServer server;
+
+    private Thread serverThread;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new CalculatorServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                CalculatorSession.UNLIMITED_UNDO_DEPTH);
+        serverThread = new Thread(() -> {
+            try {
+                server.run();
+            } catch (final IOException exception) {
+                throw new RuntimeException(exception);
+            }
+        });
+        serverThread.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        server.stop();
+        serverThread.join(10_000);
+    }
+
+    @Test
+    void replies_with_warnings_and_stack() throws IOException {
+        try (Client client = new Client()) {
+            assertThat(client.readLine()).isEqualTo(RPNCalculator.BANNER_MESSAGE);
+
+            client.send("5 2 +\n");
+            assertThat(client.readLine()).isEqualTo("stack: 7");
+
+            client.send("\n3 * *\r\n");
+            assertThat(client.readLine()).isEqualTo("operator * (position: 5): insufficient parameters");
+            assertThat(client.readLine()).isEqualTo("stack: 21");
+        }
+    }
+
+    @Test
+    void each_connection_has_its_own_session() throws IOException {
+        try (Client first = new Client();
+             Client second = new Client()) {
+            first.readLine();
+            second.readLine();
+
+            first.send("1 2");
+            second.send("10 20 +\n");
+            assertThat(second.readLine()).isEqualTo("stack: 30");
+
+            first.send(" +\n");
+            assertThat(first.readLine()).isEqualTo("stack: 3");
+
+            second.send("undo\n");
+            assertThat(second.readLine()).isEqualTo("stack: 10 20");
+        }
+    }
+
+    @Test
+    void quit_closes_the_connection() throws IOException {
+        try (Client client = new Client()) {
+            client.readLine();
+
+            client.send("1 2 quit 3\n4\n");
+            assertThat(client.readLine()).isEqualTo("Exiting..");
+            assertThat(client.readLine()).isEqualTo("stack: 1 2");
+            assertThat(client.readLine()).isNull();
+        }
+    }
+
+    @Test
+    void serves_many_connections() throws IOException {
+        final Client[] clients = new Client[200];
+        try {
+            for (int i = 0; i < clients.length; i++) {
+                clients[i] = new Client();
+                clients[i].readLine();
+                clients[i].send(i + "\n");
+            }
+            for (int i = 0; i < clients.length; i++) {
+                clients[i].send("2 *\n");
+                assertThat(clients[i].readLine()).isEqualTo("stack: " + i);
+                assertThat(clients[i].readLine()).isEqualTo("stack: " + (i * 2));
+            }
+        } finally {
+            for (final Client client : clients) {
+                if (client != null) {
+                    client.close();
+                }
+            }
+        }
+    }
+
+    @Test
+    void connections_reset_while_accepted_do_not_stop_the_server() throws IOException {
+        for (int i = 0; i < 50; i++) {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port())) {
+                // closes with a reset, before the banner can be sent
+                socket.setSoLinger(true, 0);
+            }
+        }
+
+        try (Client client = new Client()) {
+            assertThat(client.readLine()).isEqualTo(RPNCalculator.BANNER_MESSAGE);
+            client.send("1 2 +\n");
+            assertThat(client.readLine()).isEqualTo("stack: 3");
+        }
+        assertThat(serverThread.isAlive()).isTrue();
+    }
+
+    private final class Client implements AutoCloseable {
+        private final Socket socket;
+
+        private final BufferedReader reader;
+
+        private final OutputStream writer;
+
+        private Client() throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), server.port());
+            socket.setSoTimeout(10_000);
+            reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            writer = socket.getOutputStream();
+        }
+
+        private void send(final String text) throws IOException {
+            writer.write(text.getBytes(StandardCharsets.UTF_8));
+            writer.flush();
+        }
+
+        private String readLine() throws IOException {
+            return reader.readLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package com.github.wibowo;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CalculatorSessionTest {
+
+    private final List<String> messages = new ArrayList<>();
+
+    private final CalculatorOutput output = TestHelper.recordingOutput(messages);
+
+    @Test
+    void unlimited_undo_depth_keeps_all_history() {
+        final CalculatorSession session = new CalculatorSession(CalculatorSession.UNLIMITED_UNDO_DEPTH);
+
+        session.processLine("1 2 + 3 4 + 5 6 +", output);
+        assertThat(session.retainedHistorySize()).isEqualTo(3);
+
+        for (int i = 0; i < 4; i++) {
+            session.processLine("undo", output);
+        }
+        assertThat(session.toString()).isEqualTo("stack: 3 3 4");
+    }
+
+    @Test
+    void items_below_undo_depth_are_compacted() {
+        final CalculatorSession session = new CalculatorSession(2);
+
+        session.processLine("1 2 + 3 4 * 5 6 - 7 8 /", output);
+        assertThat(session.toString()).isEqualTo("stack: 3 12 -1 0.875");
+        assertThat(session.retainedHistorySize()).isEqualTo(2);
+        assertThat(session.stack().get(0).getOperation()).isEqualTo(Operation.Push);
+        assertThat(session.stack().get(1).getOperation()).isEqualTo(Operation.Push);
+        assertThat(session.stack().get(2).getOperation()).isEqualTo(Operation.Minus);
+
+        // within the undo depth, arguments are restored
+        session.processLine("undo undo", output);
+        assertThat(session.toString()).isEqualTo("stack: 3 12 -1 7");
+
+        // beyond it, only the value is removed
+        session.processLine("clear 1 2 + 3 4 + 5 6 +", output);
+        for (int i = 0; i < 4; i++) {
+            session.processLine("undo", output);
+        }
+        assertThat(session.toString()).isEqualTo("stack: 3");
+    }
+
+    @Test
+    void items_pushed_again_after_compaction_keep_their_arguments() {
+        final CalculatorSession session = new CalculatorSession(1);
+
+        session.processLine("1 2 + 3 4 +", output);
+        assertThat(session.retainedHistorySize()).isEqualTo(1);
+
+        session.processLine("+ 5 + 6 7 + undo", output);
+        assertThat(session.toString()).isEqualTo("stack: 15 6 7");
+        assertThat(session.retainedHistorySize()).isEqualTo(1);
+
+        session.processLine("clear 1 2 +", output);
+        session.processLine("undo", output);
+        assertThat(session.toString()).isEqualTo("stack: 1 2");
+    }
+
+    @Test
+    void undo_depth_must_not_be_negative() {
+        final IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> new CalculatorSession(-2));
+        assertThat(exception.getMessage()).isEqualTo("Undo depth must not be negative. Received: -2");
+    }
+
+    @Test
+    void reset_drops_all_history() {
+        final CalculatorSession session = new CalculatorSession(1);
+        session.processLine("1 2 3 4 5", output);
+
+        session.reset();
+
+        assertThat(session.toString()).isEqualTo("stack: ");
+        assertThat(session.retainedHistorySize()).isEqualTo(0);
+    }
+
+    @Test
+    void restore_goes_back_to_last_fork() {
+        final CalculatorSession session = new CalculatorSession(CalculatorSession.UNLIMITED_UNDO_DEPTH, new PersistentRPNStack<>());
+
+        session.processLine("1 2 fork +", output);
+        assertThat(session.toString()).isEqualTo("stack: 3");
+
+        session.processLine("restore fork *", output);
+        assertThat(session.toString()).isEqualTo("stack: 2");
+
+        session.processLine("restore -", output);
+        assertThat(session.toString()).isEqualTo("stack: -1");
+        assertThat(session.forks()).isEqualTo(0);
+
+        session.processLine("undo", output);
+        assertThat(session.toString()).isEqualTo("stack: 1 2");
+    }
+
+    @Test
+    void restore_without_fork_fails() {
+        final CalculatorSession session = new CalculatorSession();
+
+        assertThat(session.processLine("1 restore 2", output)).isEqualTo(CommandExecutionStatus.Failed);
+
+        assertThat(session.toString()).isEqualTo("stack: 1");
+        assertThat(messages).containsExactly("operator restore (position: 3): no fork to restore");
+    }
+
+    @Test
+    void undo_of_empty_stack_fails() {
+        final CalculatorSession session = new CalculatorSession();
+
+        assertThat(session.processLine("1 undo undo 2", output)).isEqualTo(CommandExecutionStatus.Failed);
+
+        assertThat(session.toString()).isEqualTo("stack: ");
+        assertThat(session.lastError()).isEqualTo(CalculatorError.NothingToUndo);
+        assertThat(session.lastErrorPosition()).isEqualTo(8);
+        assertThat(messages).containsExactly("operator undo (position: 8): nothing to undo");
+    }
+
+    @Test
+    void invalid_arguments_are_rolled_back_without_evaluating() {
+        final CalculatorSession session = new CalculatorSession();
+
+        assertThat(session.processLine("4 0 /", output)).isEqualTo(CommandExecutionStatus.Failed);
+        assertThat(session.lastError()).isEqualTo(CalculatorError.DivisionByZero);
+        assertThat(session.processLine("clear -2.5 sqrt", output)).isEqualTo(CommandExecutionStatus.Failed);
+        assertThat(session.lastError()).isEqualTo(CalculatorError.SquareRootOfNegative);
+
+        assertThat(session.toString()).isEqualTo("stack: -2.5");
+        assertThat(messages).containsExactly(
+                "operator / (position: 5): operation execution failed due to: [/ by zero]",
+                "operator sqrt (position: 12): operation execution failed due to: [Illegal sqrt(x) for x < 0: x = -2.5]");
+    }
+
+    @Test
+    void failed_operation_leaves_its_arguments_untouched() {
+        final CalculatorSession session = new CalculatorSession();
+
+        assertThat(session.processLine("1 2 + 0 /", output)).isEqualTo(CommandExecutionStatus.Failed);
+        assertThat(session.toString()).isEqualTo("stack: 3 0");
+
+        // the arguments still know how they were computed
+        session.processLine("undo undo", output);
+        assertThat(session.toString()).isEqualTo("stack: 1 2");
+    }
+
+    @Test
+    void operations_before_one_lacking_arguments_are_executed() {
+        final CalculatorSession session = new CalculatorSession();
+
+        assertThat(session.processLine("1 2 + print 3 * - 4", output)).isEqualTo(CommandExecutionStatus.Failed);
+
+        assertThat(session.toString()).isEqualTo("stack: 9");
+        assertThat(session.lastError()).isEqualTo(CalculatorError.InsufficientParameters);
+        assertThat(messages).containsExactly("stack: 3", "operator - (position: 17): insufficient parameters");
+    }
+
+    @Test
+    void failures_found_by_evaluation_are_rolled_back() {
+        final CalculatorSession session = new CalculatorSession();
+        session.setPrecision(Precision.Binary64);
+
+        final String large = new BigDecimal("1e300").toPlainString();
+
+        assertThat(session.processLine(large + " " + large + " *", output)).isEqualTo(CommandExecutionStatus.Failed);
+
+        assertThat(session.lastError()).isEqualTo(CalculatorError.ExecutionFailed);
+        assertThat(session.stack().size()).isEqualTo(2);
+        assertThat(messages).containsExactly("operator * (position: " + (2 * large.length() + 3) + "): operation execution failed due to: [Result is not a finite number: Infinity]");
+    }
+
+    @Test
+    void first_fork_switches_to_persistent_stack() {
+        final CalculatorSession session = new CalculatorSession(CalculatorSession.UNLIMITED_UNDO_DEPTH);
+
+        session.processLine("1 2", output);
+        assertThat(session.stack()).isInstanceOf(RPNStack.class);
+
+        session.processLine("fork 3 +", output);
+        assertThat(session.stack()).isInstanceOf(PersistentRPNStack.class);
+        assertThat(session.toString()).isEqualTo("stack: 1 5");
+
+        session.processLine("restore undo", output);
+        assertThat(session.toString()).isEqualTo("stack: 1");
+    }
+
+    @Test
+    void restored_stack_keeps_history_compacted_at_fork() {
+        final CalculatorSession session = new CalculatorSession(1, new PersistentRPNStack<>());
+
+        session.processLine("1 2 + 3 4 + fork", output);
+        session.processLine("5 6 + 7 8 +", output);
+        assertThat(session.retainedHistorySize()).isEqualTo(1);
+
+        session.processLine("restore", output);
+        assertThat(session.toString()).isEqualTo("stack: 3 7");
+        assertThat(session.retainedHistorySize()).isEqualTo(1);
+
+        session.processLine("undo", output);
+        assertThat(session.toString()).isEqualTo("stack: 3 3 4");
+    }
+
+    @Test
+    void incremental_render_tracks_changes_since_last_render() {
+        final CalculatorSession session = new CalculatorSession(1);
+        session.setRenderer(StackRenderer.INCREMENTAL);
+
+        session.processLine("1 2 3", output);
+        assertThat(session.render()).isEqualTo("stack (from 0): 1 2 3");
+
+        session.processLine("4 5 +", output);
+        assertThat(session.render()).isEqualTo("stack (from 3): 9");
+
+        // compaction does not change what is shown
+        session.processLine("6", output);
+        session.processLine("+ 7", output);
+        assertThat(session.render()).isEqualTo("stack (from 3): 15 7");
+
+        // 15 was compacted, so undo only removes it
+        session.processLine("undo undo", output);
+        assertThat(session.render()).isEqualTo("stack (from 3): ");
+
+        session.processLine("clear 8", output);
+        assertThat(session.render()).isEqualTo("stack (from 0): 8");
+    }
+
+    @Test
+    void restore_renders_whole_stack_again() {
+        final CalculatorSession session = new CalculatorSession(CalculatorSession.UNLIMITED_UNDO_DEPTH, new PersistentRPNStack<>());
+        session.setRenderer(StackRenderer.INCREMENTAL);
+
+        session.processLine("1 2 fork", output);
+        session.render();
+        session.processLine("3 restore", output);
+        assertThat(session.render()).isEqualTo("stack (from 0): 1 2");
+    }
+
+    @Test
+    void print_shows_full_stack() {
+        final CalculatorSession session = new CalculatorSession();
+        session.setRenderer(StackRenderer.windowed(1));
+
+        session.processLine("1 2 3 print", output);
+
+        assertThat(messages).containsExactly("stack: 1 2 3");
+        assertThat(session.render()).isEqualTo("stack (depth 3): ... 3");
+    }
+
+    @Test
+    void precision_switches_arithmetic_of_following_operations() {
+        final CalculatorSession session = new CalculatorSession();
+
+        session.processLine("precision", output);
+        assertThat(messages).containsExactly("precision: scale-30");
+
+        session.processLine("1 3 / 3 * precision double 1 3 / 3 *", output);
+        assertThat(session.precision()).isEqualTo(Precision.Binary64);
+        assertThat(session.toString()).isEqualTo("stack: 0.9999999999 1");
+
+        session.processLine("precision decimal64 2 3 /", output);
+        assertThat(session.stack().peek(0).getResult().eval()).isEqualTo(new BigDecimal("0.6666666666666667"));
+    }
+
+    @Test
+    void unknown_precision_fails() {
+        final CalculatorSession session = new CalculatorSession();
+
+        assertThat(session.processLine("1 precision float 2", output)).isEqualTo(CommandExecutionStatus.Failed);
+        assertThat(messages).containsExactly("operator precision (position: 3): unsupported precision [float]");
+        assertThat(session.toString()).isEqualTo("stack: 1");
+        assertThat(session.precision()).isEqualTo(Precision.DEFAULT);
+    }
+
+    @Test
+    void reset_goes_back_to_default_precision() {
+        final CalculatorSession session = new CalculatorSession();
+
+        session.processLine("precision decimal128", output);
+        session.reset();
+        assertThat(session.precision()).isEqualTo(Precision.DEFAULT);
+    }
+
+    @Test
+    void deferred_mode_produces_same_stack_and_undo() {
+        final String[] lines = {"1 2 + 3 + 4 5 * 6 * +", "undo", "undo 2.5 + 7 *", "0 /", "sqrt undo undo undo"};
+        final CalculatorSession eager = new CalculatorSession();
+        final CalculatorSession deferred = new CalculatorSession();
+        deferred.setDeferred(true);
+        final List<String> deferredMessages = new ArrayList<>();
+        final CalculatorOutput deferredOutput = TestHelper.recordingOutput(deferredMessages);
+
+        for (final String line : lines) {
+            assertThat(deferred.processLine(line, deferredOutput)).isEqualTo(eager.processLine(line, output));
+            assertThat(deferred.toString()).isEqualTo(eager.toString());
+        }
+        assertThat(deferredMessages).isEqualTo(messages).isNotEmpty();
+    }
+
+    @Test
+    void deferred_mode_keeps_chain_unevaluated_until_shown() {
+        final CalculatorSession session = new CalculatorSession();
+        session.setDeferred(true);
+
+        session.processLine("1 2 + 3 + 4 +", output);
+        assertThat(session.stack().peek(0).isEvaluated()).isFalse();
+        assertThat(session.render()).isEqualTo("stack: 10");
+        assertThat(session.stack().peek(0).isEvaluated()).isTrue();
+    }
+
+    @Test
+    void reduction_replaces_whole_stack_or_top_items() {
+        final CalculatorSession session = new CalculatorSession();
+
+        session.processLine("1 2 3 4 sum:3", output);
+        assertThat(session.toString()).isEqualTo("stack: 1 9");
+        session.processLine("5 sumsq", output);
+        assertThat(session.toString()).isEqualTo("stack: 107");
+        session.processLine("undo", output);
+        assertThat(session.toString()).isEqualTo("stack: 1 9 5");
+        session.processLine("clear 1 2 3 4 sum:3 undo", output);
+        assertThat(session.toString()).isEqualTo("stack: 1 2 3 4");
+        session.processLine("mean 2 max", output);
+        assertThat(session.toString()).isEqualTo("stack: 2.5");
+    }
+
+    @Test
+    void reduction_of_more_items_than_stack_fails() {
+        final CalculatorSession session = new CalculatorSession();
+
+        assertThat(session.processLine("1 2 prod:3", output)).isEqualTo(CommandExecutionStatus.Failed);
+        assertThat(session.processLine("clear min", output)).isEqualTo(CommandExecutionStatus.Failed);
+        assertThat(messages).containsExactly(
+                "operator prod (position: 5): insufficient parameters",
+                "operator min (position: 7): insufficient parameters");
+    }
+
+    @Test
+    void reduction_of_persistent_stack_is_undone_in_one_step() {
+        final CalculatorSession session = new CalculatorSession(CalculatorSession.UNLIMITED_UNDO_DEPTH, new PersistentRPNStack<>());
+        final StringBuilder line = new StringBuilder();
+        for (int i = 1; i <= 1000; i++) {
+            line.append(i).append(' ');
+        }
+
+        session.processLine(line + "sum", output);
+        assertThat(session.toString()).isEqualTo("stack: 500500");
+        session.processLine("undo", output);
+        assertThat(session.stack().size()).isEqualTo(1000);
+        assertThat(session.stack().peek(0).getResult()).isEqualTo(RealNumber.of(1000));
+        assertThat(session.stack().get(0).getResult()).isEqualTo(RealNumber.of(1));
+    }
+
+    @Test
+    void session_without_flight_recorder_events_behaves_the_same() {
+        final CalculatorSession session = new CalculatorSession();
+        session.setFlightRecorderEvents(false);
+
+        assertThat(session.processLine("1 2 + 3 *", output)).isEqualTo(CommandExecutionStatus.Success);
+        assertThat(session.processLine("0 / undo", output)).isEqualTo(CommandExecutionStatus.Failed);
+        session.processLine("undo undo", output);
+
+        assertThat(session.isFlightRecorderEvents()).isFalse();
+        assertThat(session.toString()).isEqualTo("stack: 3 3");
+        assertThat(messages).containsExactly("operator / (position: 3): operation execution failed due to: [/ by zero]");
+    }
+}
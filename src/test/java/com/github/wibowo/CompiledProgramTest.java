@@ -0,0 +1,102 @@
+package com.github.wibowo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompiledProgramTest {
+
+    @Test
+    void resolves_operations_and_parses_numbers() {
+        final CompiledProgram program = CompiledProgram.compile("  5 2.5 + SQRT undo");
+
+        assertThat(program.size()).isEqualTo(5);
+        assertThat(program.operation(0)).isEqualTo(Operation.Push);
+        assertThat(program.constant(0)).isEqualTo(RealNumber.of("5"));
+        assertThat(program.operation(1)).isEqualTo(Operation.Push);
+        assertThat(program.constant(1)).isEqualTo(RealNumber.of("2.5"));
+        assertThat(program.operation(2)).isEqualTo(Operation.Plus);
+        assertThat(program.constant(2)).isNull();
+        assertThat(program.operation(3)).isEqualTo(Operation.Sqrt);
+        assertThat(program.operation(4)).isEqualTo(Operation.Undo);
+    }
+
+    @Test
+    void records_position_of_each_operation() {
+        final CompiledProgram program = CompiledProgram.compile("1    2   3   *  5 + * * 6 5");
+
+        assertThat(program.offset(7)).isEqualTo(22);
+        assertThat(program.position(7)).isEqualTo(23);
+    }
+
+    @Test
+    void keeps_unsupported_tokens() {
+        final CompiledProgram program = CompiledProgram.compile("1 2 ( 5.");
+
+        assertThat(program.operation(2)).isEqualTo(Operation.UnsupportedOperation);
+        assertThat(program.operand(2)).isEqualTo("(");
+        assertThat(program.operation(3)).isEqualTo(Operation.UnsupportedOperation);
+        assertThat(program.operand(3)).isEqualTo("5.");
+        assertThat(program.operand(1)).isNull();
+    }
+
+    @Test
+    void precision_takes_the_next_token_as_profile_name() {
+        final CompiledProgram program = CompiledProgram.compile("1 precision 2 3 precision");
+
+        assertThat(program.size()).isEqualTo(4);
+        assertThat(program.operation(1)).isEqualTo(Operation.SwitchPrecision);
+        assertThat(program.operand(1)).isEqualTo("2");
+        assertThat(program.operation(2)).isEqualTo(Operation.Push);
+        assertThat(program.constant(2)).isEqualTo(RealNumber.of("3"));
+        assertThat(program.position(2)).isEqualTo(15);
+        assertThat(program.operation(3)).isEqualTo(Operation.SwitchPrecision);
+        assertThat(program.operand(3)).isNull();
+    }
+
+    @Test
+    void reduction_may_be_given_number_of_items() {
+        final CompiledProgram program = CompiledProgram.compile("sum sum:3 MAX:12 sum:0 sum:x +:2");
+
+        assertThat(program.operation(0)).isEqualTo(Operation.Sum);
+        assertThat(program.count(0)).isEqualTo(0);
+        assertThat(program.operation(1)).isEqualTo(Operation.Sum);
+        assertThat(program.count(1)).isEqualTo(3);
+        assertThat(program.operation(2)).isEqualTo(Operation.Max);
+        assertThat(program.count(2)).isEqualTo(12);
+        for (int i = 3; i < program.size(); i++) {
+            assertThat(program.operation(i)).isEqualTo(Operation.UnsupportedOperation);
+        }
+        assertThat(program.operand(5)).isEqualTo("+:2");
+    }
+
+    @Test
+    void finds_operation_lacking_arguments_without_executing() {
+        final CompiledProgram program = CompiledProgram.compile("1 + 2 3 * sqrt sum:4");
+
+        assertThat(program.insufficientIndex(0)).isEqualTo(1);
+        assertThat(program.insufficientIndex(1)).isEqualTo(6);
+        assertThat(program.insufficientIndex(2)).isEqualTo(6);
+        assertThat(program.insufficientIndex(3)).isEqualTo(-1);
+    }
+
+    @Test
+    void operations_after_clear_lack_arguments_whatever_the_depth() {
+        final CompiledProgram program = CompiledProgram.compile("1 2 clear 3 + 4");
+
+        assertThat(program.insufficientIndex(100)).isEqualTo(4);
+        assertThat(CompiledProgram.compile("max 1 +").insufficientIndex(0)).isEqualTo(0);
+        assertThat(CompiledProgram.compile("max 1 +").insufficientIndex(5)).isEqualTo(-1);
+    }
+
+    @Test
+    void operations_after_undo_are_not_checked() {
+        assertThat(CompiledProgram.compile("1 undo + + +").insufficientIndex(0)).isEqualTo(-1);
+        assertThat(CompiledProgram.compile("+ undo").insufficientIndex(0)).isEqualTo(0);
+    }
+
+    @Test
+    void blank_line_compiles_into_empty_program() {
+        assertThat(CompiledProgram.compile("   ").size()).isEqualTo(0);
+    }
+}
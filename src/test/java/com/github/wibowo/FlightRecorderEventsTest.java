@@ -0,0 +1,76 @@
+package com.github.wibowo;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FlightRecorderEventsTest {
+
+    @Test
+    void events_are_disabled_by_default() {
+        assertThat(new LineEvent().isEnabled()).isFalse();
+        assertThat(new EvaluationEvent().isEnabled()).isFalse();
+        assertThat(new RollbackEvent().isEnabled()).isFalse();
+    }
+
+    @Test
+    void records_lines_evaluations_and_rollbacks() throws Exception {
+        final CalculatorSession session = new CalculatorSession();
+        final List<RecordedEvent> events;
+        final Path file = Files.createTempFile("rpn", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(LineEvent.class).withoutThreshold();
+            recording.enable(EvaluationEvent.class).withoutThreshold();
+            recording.enable(RollbackEvent.class);
+            recording.start();
+            session.processLine("1 3 / 0 /", TestHelper.NO_OUTPUT);
+            session.processLine("undo", TestHelper.NO_OUTPUT);
+            recording.stop();
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        } finally {
+            Files.delete(file);
+        }
+
+        assertThat(events).hasSize(6);
+
+        final RecordedEvent divide = events.get(0);
+        assertThat(divide.getEventType().getName()).isEqualTo("com.github.wibowo.Evaluation");
+        assertThat(divide.getString("operation")).isEqualTo("Divide");
+        assertThat(divide.getString("precision")).isEqualTo(Precision.DEFAULT.profileName());
+        assertThat(divide.getInt("operands")).isEqualTo(2);
+        assertThat(divide.getInt("magnitude")).isEqualTo(1);
+        assertThat(divide.getBoolean("failed")).isFalse();
+
+        final RecordedEvent divisionByZero = events.get(1);
+        assertThat(divisionByZero.getString("operation")).isEqualTo("Divide");
+        assertThat(divisionByZero.getInt("scale")).isEqualTo(RealNumber.DEFAULT_SCALE);
+        assertThat(divisionByZero.getBoolean("failed")).isTrue();
+
+        final RecordedEvent failure = events.get(2);
+        assertThat(failure.getEventType().getName()).isEqualTo("com.github.wibowo.Rollback");
+        assertThat(failure.getString("reason")).isEqualTo(RollbackEvent.FAILURE);
+        assertThat(failure.getInt("restoredArguments")).isEqualTo(2);
+
+        final RecordedEvent line = events.get(3);
+        assertThat(line.getEventType().getName()).isEqualTo("com.github.wibowo.Line");
+        assertThat(line.getString("line")).isEqualTo("1 3 / 0 /");
+        assertThat(line.getInt("tokens")).isEqualTo(5);
+        assertThat(line.getString("status")).isEqualTo("Failed");
+        assertThat(line.getInt("stackDepth")).isEqualTo(2);
+
+        final RecordedEvent undo = events.get(4);
+        assertThat(undo.getString("operation")).isEqualTo("Push");
+        assertThat(undo.getInt("restoredArguments")).isEqualTo(0);
+        assertThat(undo.getString("reason")).isEqualTo(RollbackEvent.UNDO);
+
+        assertThat(events.get(5).getString("status")).isEqualTo("Success");
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.wibowo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyHistogramTest {
+
+    @Test
+    void empty_histogram_reports_zero() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        assertThat(histogram.count()).isEqualTo(0);
+        assertThat(histogram.meanNanos()).isEqualTo(0);
+        assertThat(histogram.percentileNanos(99)).isEqualTo(0);
+        assertThat(histogram.maxNanos()).isEqualTo(0);
+    }
+
+    @Test
+    void percentiles_are_upper_bound_of_their_bucket_at_most_the_maximum() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 98; i++) {
+            histogram.record(100);
+        }
+        histogram.record(1000);
+        histogram.record(5000);
+
+        assertThat(histogram.count()).isEqualTo(100);
+        assertThat(histogram.meanNanos()).isEqualTo(158);
+        assertThat(histogram.percentileNanos(50)).isEqualTo(127);
+        assertThat(histogram.percentileNanos(99)).isEqualTo(1023);
+        assertThat(histogram.percentileNanos(100)).isEqualTo(5000);
+        assertThat(histogram.maxNanos()).isEqualTo(5000);
+    }
+
+    @Test
+    void extreme_durations_are_recorded() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertThat(histogram.count()).isEqualTo(2);
+        assertThat(histogram.percentileNanos(50)).isEqualTo(0);
+        assertThat(histogram.percentileNanos(100)).isEqualTo(Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.wibowo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LiteralCacheTest {
+
+    @Test
+    void returns_cached_number_for_same_literal() {
+        final LiteralCache cache = new LiteralCache(16);
+        final RealNumber number = RealNumber.of("42.5");
+
+        assertThat(cache.get("1 42.5 +", 2, 6)).isNull();
+        cache.put("1 42.5 +", 2, 6, number);
+
+        assertThat(cache.get("42.5", 0, 4)).isSameAs(number);
+        assertThat(cache.get("42.55", 0, 5)).isNull();
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(cache.misses()).isEqualTo(1);
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.toString()).isEqualTo("Literal cache: size=1, hits=1, misses=1, evictions=0");
+    }
+
+    @Test
+    void literal_replaces_the_one_in_its_slot() {
+        final LiteralCache cache = new LiteralCache(1);
+        cache.put("1.5", 0, 3, RealNumber.of("1.5"));
+        cache.put("2.5", 0, 3, RealNumber.of("2.5"));
+
+        assertThat(cache.get("1.5", 0, 3)).isNull();
+        assertThat(cache.get("2.5", 0, 3)).isEqualTo(RealNumber.of("2.5"));
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.evictions()).isEqualTo(1);
+    }
+
+    @Test
+    void long_literals_are_not_cached() {
+        final LiteralCache cache = new LiteralCache(16);
+        final String literal = "1234567890.1234567890123456789012345678901234567890";
+        cache.put(literal, 0, literal.length(), RealNumber.of(literal));
+
+        assertThat(cache.get(literal, 0, literal.length())).isNull();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    void capacity_0_disables_caching() {
+        final LiteralCache cache = new LiteralCache(0);
+        cache.put("1.5", 0, 3, RealNumber.of("1.5"));
+
+        assertThat(cache.get("1.5", 0, 3)).isNull();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    void capacity_must_not_be_negative() {
+        final IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> new LiteralCache(-1));
+        assertThat(exception.getMessage()).isEqualTo("Capacity must not be negative. Received: -1");
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.wibowo;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetricsTest {
+
+    private final List<String> messages = new ArrayList<>();
+
+    private final CalculatorOutput output = TestHelper.recordingOutput(messages);
+
+    private final Metrics metrics = new Metrics();
+
+    private final CalculatorSession session = new CalculatorSession();
+
+    MetricsTest() {
+        session.setMetrics(metrics);
+    }
+
+    @Test
+    void records_invocations_failures_and_rollbacks() {
+        session.processLine("1 2 + 3 0 / ( 4", output);
+        session.processLine("undo undo undo", output);
+
+        assertThat(metrics.getLines()).isEqualTo(2);
+        assertThat(metrics.getTokens()).isEqualTo(11);
+        assertThat(metrics.getParseErrors()).isEqualTo(0);
+        assertThat(metrics.getInvocations()).containsEntry("Push", 4L).containsEntry("+", 1L).containsEntry("/", 1L);
+        assertThat(metrics.getFailures()).containsEntry("+", 0L).containsEntry("/", 1L);
+        // the division rolled back on failure, then the addition on undo
+        assertThat(metrics.getRollbacks()).containsEntry("+", 1L).containsEntry("/", 1L);
+        assertThat(metrics.getEvaluateP99Nanos().get("+")).isGreaterThan(0);
+        assertThat(metrics.getProcessLineMaxNanos()).isGreaterThan(0);
+    }
+
+    @Test
+    void records_parse_errors_and_stack_sizes() {
+        session.processLine("1 2 ( 3 4", output);
+        session.processLine("clear 5", output);
+
+        assertThat(metrics.getParseErrors()).isEqualTo(1);
+        assertThat(metrics.getParseErrorRate()).isEqualTo(1.0 / 7);
+        assertThat(metrics.getStackDepth()).isEqualTo(1);
+        assertThat(metrics.getMaxStackDepth()).isEqualTo(4);
+        assertThat(metrics.getUndoHistorySize()).isEqualTo(1);
+    }
+
+    @Test
+    void specialized_programs_record_their_operations() {
+        final CompiledProgram program = CompiledProgram.compile("1 2 + 3 *");
+        for (int i = 0; i < 3; i++) {
+            program.evaluator(1);
+            session.execute(program, output);
+        }
+
+        assertThat(metrics.getInvocations()).containsEntry("Push", 9L).containsEntry("+", 3L).containsEntry("*", 3L);
+    }
+
+    @Test
+    void stats_command_prints_report() {
+        session.processLine("1 2 +", output);
+        session.processLine("stats", output);
+
+        assertThat(messages.get(0)).isEqualTo("lines: 1, tokens: 3, parse errors: 0 (0.00%)");
+        assertThat(messages.get(1)).startsWith("processLine: mean ");
+        assertThat(messages.get(2)).isEqualTo("stack depth: 1 (max 1), undo history: 1 (max 1)");
+        assertThat(messages.get(3)).startsWith("+: invocations 1, failures 0, rollbacks 0, evaluate mean ");
+        assertThat(messages.get(4)).startsWith("Push: invocations 2, failures 0, rollbacks 0, evaluate mean ");
+        assertThat(messages.get(5)).startsWith("Program cache: ");
+    }
+
+    @Test
+    void global_metrics_are_exposed_as_mbean() throws Exception {
+        Metrics.registerMBean();
+        Metrics.registerMBean();
+
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+        assertThat(server.isRegistered(name)).isTrue();
+        assertThat((Long) server.getAttribute(name, "Lines")).isEqualTo(Metrics.GLOBAL.getLines());
+    }
+}
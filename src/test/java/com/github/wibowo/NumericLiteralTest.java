@@ -0,0 +1,81 @@
+package com.github.wibowo;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NumericLiteralTest {
+
+    @Test
+    void matches_numbers() {
+        assertTrue(NumericLiteral.matches("42"));
+        assertTrue(NumericLiteral.matches("-42"));
+        assertTrue(NumericLiteral.matches("+42"));
+        assertTrue(NumericLiteral.matches("42.123456"));
+        assertTrue(NumericLiteral.matches(".5"));
+        assertTrue(NumericLiteral.matches("-.5"));
+        assertTrue(NumericLiteral.matches("0"));
+    }
+
+    @Test
+    void does_not_match_anything_else() {
+        assertFalse(NumericLiteral.matches(""));
+        assertFalse(NumericLiteral.matches("-"));
+        assertFalse(NumericLiteral.matches("."));
+        assertFalse(NumericLiteral.matches("5."));
+        assertFalse(NumericLiteral.matches("1.2.3"));
+        assertFalse(NumericLiteral.matches("--5"));
+        assertFalse(NumericLiteral.matches("5-"));
+        assertFalse(NumericLiteral.matches("1e5"));
+        assertFalse(NumericLiteral.matches(" 5"));
+        assertFalse(NumericLiteral.matches("sqrt"));
+    }
+
+    @Test
+    void parses_range_of_text() {
+        final String line = "1 -42.50 +";
+        assertThat(NumericLiteral.parse(line, 2, 8))
+                .isEqualTo(RealNumber.of(new BigDecimal("-42.5")));
+        assertThat(NumericLiteral.parse(line, 9, 10)).isNull();
+    }
+
+    @Test
+    void parses_leading_zeros() {
+        assertThat(parse("0.0009").eval()).isEqualTo(new BigDecimal("0.0009"));
+        assertThat(parse("000123").eval()).isEqualTo(new BigDecimal("123"));
+        assertThat(parse("-0").eval()).isEqualTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    void parses_numbers_too_long_for_long() {
+        assertThat(parse("123456789012345678").eval())
+                .isEqualTo(new BigDecimal("123456789012345678"));
+        assertThat(parse("-1234567890123456789012345").eval())
+                .isEqualTo(new BigDecimal("-1234567890123456789012345"));
+        assertThat(parse("0.000000000000000000001234567890123456789").eval())
+                .isEqualTo(new BigDecimal("0.00000000000000000000123456789"));
+    }
+
+    @Test
+    void scale_is_limited_to_default_scale() {
+        assertThat(parse("0.12345678901234567").eval())
+                .isEqualTo(new BigDecimal("0.12345678901234567"));
+        assertThat(parse("0.0000000000000000000000000000019").eval())
+                .isEqualTo(new BigDecimal("0.000000000000000000000000000001"));
+    }
+
+    @Test
+    void returns_null_for_invalid_number() {
+        assertThat(parse("5.")).isNull();
+        assertThat(parse("abc")).isNull();
+        assertThat(parse("")).isNull();
+    }
+
+    private static RealNumber parse(final String text) {
+        return NumericLiteral.parse(text, 0, text.length());
+    }
+}
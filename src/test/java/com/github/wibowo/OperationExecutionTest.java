@@ -0,0 +1,82 @@
+package com.github.wibowo;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OperationExecutionTest {
+
+    @Test
+    void eager_execution_computes_result_at_once() {
+        final OperationExecution execution = new OperationExecution(Operation.Plus, TestHelper.getArguments("2", "3"));
+
+        assertThat(execution.isEvaluated()).isTrue();
+        assertThat(execution.getResult()).isEqualTo(RealNumber.of(5));
+    }
+
+    @Test
+    void deferred_chain_is_computed_when_needed() {
+        final OperationExecution first = deferred(Operation.Plus, push("1"), push("2"));
+        final OperationExecution second = deferred(Operation.Plus, push("3"), first);
+        final OperationExecution third = deferred(Operation.Plus, push("4.5"), second);
+
+        assertThat(third.isEvaluated()).isFalse();
+        assertThat(third.getResult()).isEqualTo(RealNumber.of("10.5"));
+        assertThat(third.toString()).isEqualTo("10.5");
+
+        // the middle of the chain is not computed, until its own result is needed
+        assertThat(second.isEvaluated()).isFalse();
+        assertThat(third.getArguments()).containsExactly(RealNumber.of("4.5"), RealNumber.of(6));
+        assertThat(second.isEvaluated()).isTrue();
+        assertThat(first.isEvaluated()).isFalse();
+    }
+
+    @Test
+    void deferred_chain_is_rounded_once() {
+        OperationExecution chain = push("1000000000000000");
+        for (int i = 0; i < 3; i++) {
+            chain = deferred(Operation.Plus, push("0.4"), chain, Precision.Decimal64);
+        }
+
+        // rounding after each addition would drop every 0.4
+        assertThat(chain.getResult().eval()).isEqualByComparingTo(new BigDecimal("1000000000000001"));
+    }
+
+    @Test
+    void operand_of_another_chain_is_computed_when_deferred() {
+        final OperationExecution sum = deferred(Operation.Plus, push("1"), push("2"), Precision.Decimal64);
+        final OperationExecution otherSum = deferred(Operation.Plus, push("3"), sum);
+
+        assertThat(sum.isEvaluated()).isTrue();
+        assertThat(otherSum.isEvaluated()).isFalse();
+        assertThat(otherSum.getResult()).isEqualTo(RealNumber.of(6));
+    }
+
+    @Test
+    void only_additions_can_be_deferred() {
+        assertThrows(IllegalArgumentException.class, () -> deferred(Operation.Minus, push("1"), push("2")));
+        assertThrows(IllegalArgumentException.class, () -> deferred(Operation.Multiply, push("1"), push("2")));
+        assertThrows(IllegalArgumentException.class, () -> deferred(Operation.Plus, push("1"), push("2"), Precision.Binary64));
+    }
+
+    private static OperationExecution push(final String number) {
+        return new OperationExecution(Operation.Push, RealNumber.of(number));
+    }
+
+    private static OperationExecution deferred(final Operation operation,
+                                               final OperationExecution first,
+                                               final OperationExecution second) {
+        return deferred(operation, first, second, Precision.Scale30);
+    }
+
+    private static OperationExecution deferred(final Operation operation,
+                                               final OperationExecution first,
+                                               final OperationExecution second,
+                                               final Precision precision) {
+        return OperationExecution.deferred(operation, Arrays.asList(first, second), precision);
+    }
+}
@@ -10,15 +10,25 @@ class OperationTest {
 
     @Test
     void test_dictionary() {
-        assertNotNull(Operation.dictionary.get("+"));
-        assertNotNull(Operation.dictionary.get("-"));
-        assertNotNull(Operation.dictionary.get("*"));
-        assertNotNull(Operation.dictionary.get("/"));
-        assertNotNull(Operation.dictionary.get("sqrt"));
-        assertNotNull(Operation.dictionary.get("undo"));
-        assertNotNull(Operation.dictionary.get("clear"));
-        assertNotNull(Operation.dictionary.get("?"));
-        assertNotNull(Operation.dictionary.get("quit"));
+        assertNotNull(Operation.dictionary().get("+"));
+        assertNotNull(Operation.dictionary().get("-"));
+        assertNotNull(Operation.dictionary().get("*"));
+        assertNotNull(Operation.dictionary().get("/"));
+        assertNotNull(Operation.dictionary().get("sqrt"));
+        assertNotNull(Operation.dictionary().get("undo"));
+        assertNotNull(Operation.dictionary().get("clear"));
+        assertNotNull(Operation.dictionary().get("?"));
+        assertNotNull(Operation.dictionary().get("quit"));
+        assertNotNull(Operation.dictionary().get("fork"));
+        assertNotNull(Operation.dictionary().get("restore"));
+        assertNotNull(Operation.dictionary().get("print"));
+        assertNotNull(Operation.dictionary().get("precision"));
+        assertNotNull(Operation.dictionary().get("sum"));
+        assertNotNull(Operation.dictionary().get("prod"));
+        assertNotNull(Operation.dictionary().get("mean"));
+        assertNotNull(Operation.dictionary().get("min"));
+        assertNotNull(Operation.dictionary().get("max"));
+        assertNotNull(Operation.dictionary().get("sumsq"));
     }
 
     @Test
@@ -129,6 +139,15 @@ class OperationTest {
                 .isEqualTo("/ by zero");
     }
 
+    @Test
+    void domain_errors_are_found_without_evaluating() {
+        assertThat(Operation.Divide.domainError(TestHelper.getArguments("0", "4"))).isEqualTo(CalculatorError.DivisionByZero);
+        assertThat(Operation.Divide.domainError(TestHelper.getArguments("4", "0"))).isNull();
+        assertThat(Operation.Sqrt.domainError(TestHelper.getArguments("-4"))).isEqualTo(CalculatorError.SquareRootOfNegative);
+        assertThat(Operation.Sqrt.domainError(TestHelper.getArguments("0"))).isNull();
+        assertThat(Operation.Plus.domainError(TestHelper.getArguments("1", "2"))).isNull();
+    }
+
     @Test
     void undo_cant_be_evaluated() {
         final UnsupportedOperationException exception = assertThrows(UnsupportedOperationException.class, () -> Operation.Undo.evaluate(TestHelper.getArguments("4", "42")));
@@ -179,4 +198,21 @@ class OperationTest {
         assertThat(Operation.findOperation("CLeaR")).isEqualByComparingTo(Operation.Clear);
         assertThat(Operation.findOperation("clEAr")).isEqualByComparingTo(Operation.Clear);
     }
-}
\ No newline at end of file
+
+    @Test
+    void test_reductions() {
+        assertThat(Operation.Sum.evaluate(TestHelper.getArguments("1", "2.5", "3"))).isEqualTo(RealNumber.of("6.5"));
+        assertThat(Operation.Product.evaluate(TestHelper.getArguments("2", "2.5", "-3"))).isEqualTo(RealNumber.of("-15"));
+        assertThat(Operation.Mean.evaluate(TestHelper.getArguments("1", "2", "4"))).isEqualTo(RealNumber.of("2.333333333333333333333333333333"));
+        assertThat(Operation.Min.evaluate(TestHelper.getArguments("3", "-1.5", "2"))).isEqualTo(RealNumber.of("-1.5"));
+        assertThat(Operation.Max.evaluate(TestHelper.getArguments("3", "-1.5", "20000000000000000000"))).isEqualTo(RealNumber.of("20000000000000000000"));
+        assertThat(Operation.SumOfSquares.evaluate(TestHelper.getArguments("3", "4", "0.5"))).isEqualTo(RealNumber.of("25.25"));
+        assertThat(Operation.Sum.evaluate(TestHelper.getArguments("42"))).isEqualTo(RealNumber.of("42"));
+    }
+
+    @Test
+    void test_reduction_requires_arguments() {
+        final IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> Operation.Sum.evaluate(TestHelper.getArguments()));
+        assertThat(exception.getMessage()).isEqualTo("Sum operation requires at least 1 argument. Received: []");
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.wibowo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ParallelBatchProcessorTest {
+
+    private Path input;
+    private Path output;
+    private Path expectedOutput;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        input = Files.createTempFile("rpn-input", ".txt");
+        output = Files.createTempFile("rpn-output", ".txt");
+        expectedOutput = Files.createTempFile("rpn-expected-output", ".txt");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(input);
+        Files.deleteIfExists(output);
+        Files.deleteIfExists(expectedOutput);
+    }
+
+    @Test
+    void produces_same_output_as_sequential_processing() throws IOException {
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            content.append(i).append(" 2 *");
+            if (i % 7 == 0) {
+                content.append(" 0 /");
+            }
+            content.append('\n');
+        }
+        content.append("5 sqrt"); // no trailing new line
+        Files.write(input, content.toString().getBytes(StandardCharsets.UTF_8));
+
+        final BatchSummary summary = new ParallelBatchProcessor(4, 64).process(input, output);
+        BatchProcessor.process(input, expectedOutput);
+
+        assertThat(summary.getLines()).isEqualTo(2001L);
+        assertThat(readLines(output)).isEqualTo(readLines(expectedOutput));
+        assertThat(summary.getWorkers().stream().mapToLong(WorkerSummary::getLines).sum()).isEqualTo(2001L);
+    }
+
+    @Test
+    void parallelism_must_be_positive() {
+        final IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> new ParallelBatchProcessor(0));
+        assertThat(exception.getMessage()).isEqualTo("Parallelism must be at least 1. Received: 0");
+    }
+
+    private static List<String> readLines(final Path path) throws IOException {
+        return Files.readAllLines(path, StandardCharsets.UTF_8);
+    }
+}
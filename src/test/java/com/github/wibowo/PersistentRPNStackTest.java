@@ -0,0 +1,92 @@
+package com.github.wibowo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EmptyStackException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PersistentRPNStackTest {
+
+    private final PersistentRPNStack<RealNumber> stack = new PersistentRPNStack<>();
+
+    @Test
+    void push_and_pop_in_reverse_order() {
+        stack.push(RealNumber.of("1")).push(RealNumber.of("2")).push(RealNumber.of("3"));
+
+        assertThat(stack.size()).isEqualTo(3);
+        assertThat(stack.toString()).isEqualTo("stack: 1 2 3");
+        assertThat(stack.pop()).isEqualTo(RealNumber.of("3"));
+
+        final List<RealNumber> pop = stack.pop(2);
+        assertThat(pop).containsExactly(RealNumber.of("2"), RealNumber.of("1"));
+        assertThat(stack.size()).isEqualTo(0);
+        assertThat(stack.toString()).isEqualTo("stack: ");
+    }
+
+    @Test
+    void popping_beyond_stack_size_throws_exception() {
+        assertThrows(EmptyStackException.class, stack::pop);
+        assertThrows(EmptyStackException.class, () -> stack.pop(1));
+
+        stack.push(RealNumber.of("1"));
+        final IllegalStateException illegalStateException = assertThrows(IllegalStateException.class, () -> stack.pop(2));
+        assertThat(illegalStateException.getMessage())
+                .isEqualTo("Not enough item in stack. Current stack size is 1");
+    }
+
+    @Test
+    void items_can_be_read_from_both_ends() {
+        stack.push(RealNumber.of("1")).push(RealNumber.of("2")).push(RealNumber.of("3"));
+
+        assertThat(stack.peek(0)).isEqualTo(RealNumber.of("3"));
+        assertThat(stack.peek(2)).isEqualTo(RealNumber.of("1"));
+        assertThat(stack.get(0)).isEqualTo(RealNumber.of("1"));
+        assertThat(stack.get(2)).isEqualTo(RealNumber.of("3"));
+        assertThrows(IllegalStateException.class, () -> stack.get(3));
+    }
+
+    @Test
+    void snapshot_is_not_affected_by_later_changes() {
+        stack.push(RealNumber.of("1")).push(RealNumber.of("2")).push(RealNumber.of("3"));
+
+        final PersistentRPNStack<RealNumber> snapshot = stack.snapshot();
+        stack.pop(2);
+        stack.push(RealNumber.of("4"));
+        stack.set(0, RealNumber.of("10"));
+
+        assertThat(stack.toString()).isEqualTo("stack: 10 4");
+        assertThat(snapshot.toString()).isEqualTo("stack: 1 2 3");
+
+        snapshot.set(1, RealNumber.of("20"));
+        snapshot.push(RealNumber.of("5"));
+        assertThat(snapshot.toString()).isEqualTo("stack: 1 20 3 5");
+        assertThat(stack.toString()).isEqualTo("stack: 10 4");
+    }
+
+    @Test
+    void low_water_mark_tracks_lowest_size_since_reset() {
+        stack.push(RealNumber.of("1")).push(RealNumber.of("2")).push(RealNumber.of("3"));
+        stack.resetLowWaterMark();
+
+        stack.pop(2);
+        stack.push(RealNumber.of("4")).push(RealNumber.of("5"));
+        assertThat(stack.lowWaterMark()).isEqualTo(1);
+
+        assertThat(stack.snapshot().lowWaterMark()).isEqualTo(3);
+    }
+
+    @Test
+    void deep_stack_does_not_overflow() {
+        for (int i = 0; i < 100_000; i++) {
+            stack.push(RealNumber.of(i));
+        }
+        stack.set(0, RealNumber.of(-1));
+
+        assertThat(stack.get(0)).isEqualTo(RealNumber.of(-1));
+        assertThat(stack.peek(0)).isEqualTo(RealNumber.of(99_999));
+        assertThat(stack.toString()).startsWith("stack: -1 1 2 ");
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.wibowo;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PrecisionTest {
+
+    @Test
+    void finds_profiles_by_name() {
+        assertThat(Precision.find("double")).isEqualTo(Precision.Binary64);
+        assertThat(Precision.find("Decimal64")).isEqualTo(Precision.Decimal64);
+        assertThat(Precision.find("decimal128")).isEqualTo(Precision.Decimal128);
+        assertThat(Precision.find("scale-30")).isEqualTo(Precision.Scale30);
+        assertThat(Precision.find("float")).isNull();
+        assertThat(Precision.DEFAULT).isEqualTo(Precision.Scale30);
+    }
+
+    @Test
+    void unknown_profile_can_not_be_parsed() {
+        final IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> Precision.parse("float"));
+        assertThat(exception.getMessage()).isEqualTo("Unsupported precision: [float]");
+    }
+
+    @Test
+    void invalid_precision_property_is_reported() {
+        System.setProperty(Precision.PROPERTY, "quad");
+        try {
+            assertThat(RPNCalculator.invalidProperty())
+                    .isEqualTo("Invalid -Drpn.precision: Unsupported precision: [quad]");
+        } finally {
+            System.clearProperty(Precision.PROPERTY);
+        }
+        assertThat(RPNCalculator.invalidProperty()).isNull();
+    }
+
+    @Test
+    void scale_30_keeps_30_fraction_digits() {
+        assertThat(Precision.Scale30.divide(RealNumber.of(1), RealNumber.of(3)).eval())
+                .isEqualTo(new BigDecimal("0.333333333333333333333333333333"));
+        assertThat(Precision.Scale30.round(RealNumber.of("12345678901234567890.5"))).isEqualTo(RealNumber.of("12345678901234567890.5"));
+    }
+
+    @Test
+    void decimal_profiles_keep_significant_digits() {
+        assertThat(Precision.Decimal64.divide(RealNumber.of(1), RealNumber.of(3)).eval())
+                .isEqualTo(new BigDecimal("0.3333333333333333"));
+        assertThat(Precision.Decimal128.divide(RealNumber.of(1), RealNumber.of(3)).eval())
+                .isEqualTo(new BigDecimal("0.3333333333333333333333333333333333"));
+        assertThat(Precision.Decimal64.divide(RealNumber.of(2), RealNumber.of(3)).eval())
+                .isEqualTo(new BigDecimal("0.6666666666666667"));
+        assertThat(Precision.Decimal64.round(RealNumber.of("12345678901234567890.5")))
+                .isEqualTo(RealNumber.of("12345678901234570000"));
+        assertThat(Precision.Decimal64.multiply(RealNumber.of(99999999999L), RealNumber.of(99999999999L)))
+                .isEqualTo(RealNumber.of("9999999999800000000000"));
+        assertThat(Precision.Decimal64.add(RealNumber.of(2), RealNumber.of(3))).isSameAs(RealNumber.of(5));
+    }
+
+    @Test
+    void binary64_follows_double_arithmetic() {
+        assertThat(Precision.Binary64.add(RealNumber.of("0.1"), RealNumber.of("0.2")).eval())
+                .isEqualTo(new BigDecimal("0.30000000000000004"));
+        assertThat(Precision.Binary64.multiply(Precision.Binary64.divide(RealNumber.of(1), RealNumber.of(3)), RealNumber.of(3)))
+                .isEqualTo(RealNumber.ONE);
+        assertThat(Precision.Binary64.round(RealNumber.of("9007199254740993"))).isEqualTo(RealNumber.of("9007199254740992"));
+        assertThat(Precision.Binary64.sqrt(RealNumber.of(2)).eval()).isEqualTo(new BigDecimal("1.4142135623730951"));
+    }
+
+    @Test
+    void binary64_overflow_is_arithmetic_error() {
+        final RealNumber huge = RealNumber.of("1E+308");
+        assertThrows(ArithmeticException.class, () -> Precision.Binary64.multiply(huge, RealNumber.TEN));
+        assertThrows(ArithmeticException.class, () -> Precision.Binary64.sqrt(RealNumber.of(-1)));
+    }
+
+    @Test
+    void reductions_above_threshold_are_split() {
+        final List<RealNumber> numbers = new ArrayList<>();
+        for (int i = 0; i < Reductions.PARALLEL_THRESHOLD * 3; i++) {
+            numbers.add(RealNumber.of(i % 2 == 0 ? "0.5" : "1"));
+        }
+        final BigDecimal half = BigDecimal.valueOf(Reductions.PARALLEL_THRESHOLD * 3 / 2);
+
+        for (final Precision precision : Precision.values()) {
+            assertThat(precision.sum(numbers).eval()).isEqualByComparingTo(half.multiply(new BigDecimal("1.5")));
+            assertThat(precision.sumOfSquares(numbers).eval()).isEqualByComparingTo(half.multiply(new BigDecimal("1.25")));
+            assertThat(precision.mean(numbers).eval()).isEqualByComparingTo(new BigDecimal("0.75"));
+        }
+        assertThat(Reductions.min(numbers)).isEqualTo(RealNumber.of("0.5"));
+        assertThat(Reductions.max(numbers)).isEqualTo(RealNumber.ONE);
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.wibowo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProgramCacheTest {
+
+    @Test
+    void returns_cached_program_for_same_line() {
+        final ProgramCache cache = new ProgramCache(10);
+
+        final CompiledProgram first = cache.compile("5 2 +");
+        final CompiledProgram second = cache.compile("5 2 +");
+
+        assertThat(second).isSameAs(first);
+        assertThat(cache.hits()).isEqualTo(1L);
+        assertThat(cache.misses()).isEqualTo(1L);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void evicts_least_recently_used_program() {
+        // single segment
+        final ProgramCache cache = new ProgramCache(1);
+
+        final CompiledProgram first = cache.compile("1");
+        cache.compile("2");
+
+        assertThat(cache.evictions()).isEqualTo(1L);
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.compile("1")).isNotSameAs(first);
+        assertThat(cache.misses()).isEqualTo(3L);
+    }
+
+    @Test
+    void recently_used_program_is_kept() {
+        final ProgramCache cache = new ProgramCache(2);
+
+        final CompiledProgram first = cache.compile("1");
+        cache.compile("2");
+        cache.compile("1");
+        cache.compile("3");
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.compile("1")).isSameAs(first);
+    }
+
+    @Test
+    void capacity_of_zero_disables_caching() {
+        final ProgramCache cache = new ProgramCache(0);
+
+        assertThat(cache.compile("1")).isNotSameAs(cache.compile("1"));
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.misses()).isEqualTo(2L);
+    }
+
+    @Test
+    void capacity_must_not_be_negative() {
+        final IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> new ProgramCache(-1));
+        assertThat(exception.getMessage()).isEqualTo("Capacity must not be negative. Received: -1");
+    }
+}
@@ -102,4 +102,118 @@ class RPNStackTest {
         assertThat(stack.toString())
                 .isEqualTo("stack: ");
     }
-}
\ No newline at end of file
+
+    @Test
+    void peeking_does_not_remove_items() {
+        final RealNumber number1 = RealNumber.of("42.0");
+        final RealNumber number2 = RealNumber.of("45.0");
+        stack.push(number1);
+        stack.push(number2);
+
+        assertThat(stack.peek(0)).isSameAs(number2);
+        assertThat(stack.peek(1)).isSameAs(number1);
+        assertThat(stack.size()).isEqualTo(2);
+    }
+
+    @Test
+    void peeking_beyond_stack_size_throws_exception() {
+        assertThrows(EmptyStackException.class, () -> stack.peek(0));
+
+        stack.push(RealNumber.of("42.0"));
+        final IllegalStateException illegalStateException = assertThrows(IllegalStateException.class, () -> stack.peek(1));
+        assertThat(illegalStateException.getMessage())
+                .isEqualTo("Not enough item in stack. Current stack size is 1");
+    }
+
+    @Test
+    void grows_beyond_initial_capacity() {
+        for (int i = 0; i < 1000; i++) {
+            stack.push(RealNumber.of(String.valueOf(i)));
+        }
+        assertThat(stack.size()).isEqualTo(1000);
+        assertThat(stack.peek(0)).isEqualTo(RealNumber.of("999"));
+        assertThat(stack.peek(999)).isEqualTo(RealNumber.of("0"));
+
+        final List<RealNumber> pop = stack.pop(3);
+        assertThat(pop).containsExactly(RealNumber.of("999"), RealNumber.of("998"), RealNumber.of("997"));
+        assertThat(stack.size()).isEqualTo(997);
+    }
+
+    @Test
+    void popped_items_view_is_reused() {
+        stack.push(RealNumber.of("1"));
+        stack.push(RealNumber.of("2"));
+        stack.push(RealNumber.of("3"));
+
+        final List<RealNumber> first = stack.pop(1);
+        assertThat(first).containsExactly(RealNumber.of("3"));
+
+        final List<RealNumber> second = stack.pop(2);
+        assertThat(second).isSameAs(first);
+        assertThat(second).containsExactly(RealNumber.of("2"), RealNumber.of("1"));
+    }
+
+    @Test
+    void popped_items_are_released_by_next_modification() {
+        stack.push(RealNumber.of("1")).push(RealNumber.of("2")).push(RealNumber.of("3"));
+
+        final List<RealNumber> popped = stack.pop(2);
+        assertThat(stack.retainedSlots()).isEqualTo(3);
+        assertThat(popped).containsExactly(RealNumber.of("3"), RealNumber.of("2"));
+
+        stack.push(RealNumber.of("4"));
+        assertThat(stack.retainedSlots()).isEqualTo(2);
+        assertThat(stack.toString()).isEqualTo("stack: 1 4");
+
+        stack.pop(1);
+        stack.set(0, RealNumber.of("5"));
+        assertThat(stack.retainedSlots()).isEqualTo(1);
+        assertThat(stack.toString()).isEqualTo("stack: 5");
+    }
+
+    @Test
+    void items_can_be_read_and_replaced_from_the_bottom() {
+        stack.push(RealNumber.of("1")).push(RealNumber.of("2")).push(RealNumber.of("3"));
+
+        assertThat(stack.get(0)).isEqualTo(RealNumber.of("1"));
+        assertThat(stack.get(2)).isEqualTo(RealNumber.of("3"));
+
+        stack.set(1, RealNumber.of("20"));
+        assertThat(stack.toString()).isEqualTo("stack: 1 20 3");
+
+        final IllegalStateException illegalStateException = assertThrows(IllegalStateException.class, () -> stack.get(3));
+        assertThat(illegalStateException.getMessage())
+                .isEqualTo("Not enough item in stack. Current stack size is 3");
+    }
+
+    @Test
+    void low_water_mark_tracks_lowest_size_since_reset() {
+        stack.push(RealNumber.of("1")).push(RealNumber.of("2")).push(RealNumber.of("3"));
+        stack.resetLowWaterMark();
+        assertThat(stack.lowWaterMark()).isEqualTo(3);
+
+        stack.pop(2);
+        stack.push(RealNumber.of("4")).push(RealNumber.of("5"));
+        stack.pop();
+        assertThat(stack.lowWaterMark()).isEqualTo(1);
+
+        stack.resetLowWaterMark();
+        assertThat(stack.lowWaterMark()).isEqualTo(2);
+
+        stack.clear();
+        assertThat(stack.lowWaterMark()).isEqualTo(0);
+    }
+
+    @Test
+    void persistent_copy_keeps_items_and_low_water_mark() {
+        stack.push(RealNumber.of("1")).push(RealNumber.of("2")).push(RealNumber.of("3"));
+        stack.resetLowWaterMark();
+        stack.pop();
+
+        final PersistentRPNStack<RealNumber> persistent = stack.persistent();
+
+        assertThat(persistent.toString()).isEqualTo("stack: 1 2");
+        assertThat(persistent.lowWaterMark()).isEqualTo(2);
+        assertThat(persistent.persistent()).isSameAs(persistent);
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.wibowo;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RealNumberCodecTest {
+
+    private static RealNumber roundTrip(final RealNumber number) {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(RealNumberCodec.encodedSize(number));
+        RealNumberCodec.encode(number, buffer);
+        assertThat(buffer.remaining()).isEqualTo(0);
+        buffer.flip();
+        final RealNumber decoded = RealNumberCodec.decode(buffer);
+        assertThat(buffer.remaining()).isEqualTo(0);
+        return decoded;
+    }
+
+    @Test
+    void small_numbers_take_a_long_form() {
+        assertThat(RealNumberCodec.encodedSize(RealNumber.of(1))).isEqualTo(2);
+        assertThat(RealNumberCodec.encodedSize(RealNumber.of(-64))).isEqualTo(2);
+        assertThat(RealNumberCodec.encodedSize(RealNumber.of("0.25"))).isEqualTo(2);
+        assertThat(RealNumberCodec.encodedSize(RealNumber.of(Long.MIN_VALUE))).isEqualTo(11);
+    }
+
+    @Test
+    void numbers_round_trip_exactly() {
+        for (final String number : new String[]{"0", "1", "-1", "1024", "1025", "0.25", "-3.141592653589793238462643383279",
+                "9223372036854775807", "-9223372036854775808", "9223372036854775808", "1E+40", "-1E-30",
+                "123456789012345678901234567890.123456789012345678901234567890"}) {
+            final RealNumber expected = RealNumber.exact(new BigDecimal(number));
+            assertThat(roundTrip(expected)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void random_numbers_round_trip_exactly() {
+        final Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            final BigDecimal value = new BigDecimal(new BigInteger(1 + random.nextInt(200), random),
+                    random.nextInt(80) - 40);
+            final RealNumber expected = RealNumber.exact(random.nextBoolean() ? value : value.negate());
+            assertThat(roundTrip(expected)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void varints_take_7_bits_per_byte() {
+        final ByteBuffer buffer = ByteBuffer.allocate(10);
+        for (final long value : new long[]{0, 127, 128, 16_383, 16_384, Long.MAX_VALUE, -1}) {
+            buffer.clear();
+            RealNumberCodec.putVarLong(buffer, value);
+            assertThat(buffer.position()).isEqualTo(RealNumberCodec.varLongSize(value));
+            buffer.flip();
+            assertThat(RealNumberCodec.getVarLong(buffer)).isEqualTo(value);
+        }
+        assertThat(RealNumberCodec.varLongSize(127)).isEqualTo(1);
+        assertThat(RealNumberCodec.varLongSize(128)).isEqualTo(2);
+        assertThat(RealNumberCodec.varLongSize(-1)).isEqualTo(10);
+    }
+
+    @Test
+    void zigzag_keeps_small_negative_numbers_small() {
+        assertThat(RealNumberCodec.zigzag(0)).isEqualTo(0);
+        assertThat(RealNumberCodec.zigzag(-1)).isEqualTo(1);
+        assertThat(RealNumberCodec.zigzag(1)).isEqualTo(2);
+        assertThat(RealNumberCodec.unzigzag(RealNumberCodec.zigzag(Long.MIN_VALUE))).isEqualTo(Long.MIN_VALUE);
+    }
+}
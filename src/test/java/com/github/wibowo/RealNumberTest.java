@@ -3,6 +3,10 @@ package com.github.wibowo;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -74,9 +78,117 @@ class RealNumberTest {
         assertThat(exception.getMessage()).isEqualTo("Unable to convert [abcdef] into a number.");
     }
 
+    @Test
+    void parse_returns_null_for_invalid_value() {
+        assertThat(RealNumber.parse("abcdef")).isNull();
+        assertThat(RealNumber.parse("1e")).isNull();
+        assertThat(RealNumber.parse("1e+")).isNull();
+        assertThat(RealNumber.parse(".")).isNull();
+        assertThat(RealNumber.parse("1e999999999999")).isNull();
+    }
+
+    @Test
+    void parse_accepts_notations_of_bigDecimal() {
+        assertThat(RealNumber.parse(" 1E+3 ")).isEqualTo(RealNumber.of(1000));
+        assertThat(RealNumber.parse("-2.5e-1")).isEqualTo(RealNumber.of("-0.25"));
+        assertThat(RealNumber.parse("1.")).isEqualTo(RealNumber.ONE);
+    }
+
+    @Test
+    void signum_of_long_and_bigDecimal_values() {
+        assertThat(RealNumber.of(-3).signum()).isEqualTo(-1);
+        assertThat(RealNumber.ZERO.signum()).isEqualTo(0);
+        assertThat(RealNumber.of("0.5").signum()).isEqualTo(1);
+        assertThat(RealNumber.of("-12345678901234567890").signum()).isEqualTo(-1);
+    }
+
     @Test
     void toString_returns_plain_decimal_string() {
         assertThat(RealNumber.of("9000000000000").toString())
                 .isEqualTo("9000000000000");
     }
-}
\ No newline at end of file
+
+    @Test
+    void toString_rounds_fraction_down_to_printing_scale() {
+        assertThat(RealNumber.of("0.5").toString()).isEqualTo("0.5");
+        assertThat(RealNumber.of("-0.5").toString()).isEqualTo("-0.5");
+        assertThat(RealNumber.of("1.00000000009").toString()).isEqualTo("1");
+        assertThat(RealNumber.of("-1.00000000001").toString()).isEqualTo("-1.0000000001");
+        assertThat(RealNumber.of("0.000000000099").toString()).isEqualTo("0");
+        assertThat(RealNumber.of("-0.000000000001").toString()).isEqualTo("-0.0000000001");
+        assertThat(RealNumber.of("0.0000000001").toString()).isEqualTo("0.0000000001");
+        assertThat(RealNumber.of("12345678901234567890.123456789012").toString()).isEqualTo("12345678901234567890.123456789");
+        assertThat(RealNumber.of("1E+25").toString()).isEqualTo("10000000000000000000000000");
+    }
+
+    @Test
+    void toString_matches_decimal_format() {
+        final DecimalFormat decimalFormat = new DecimalFormat();
+        decimalFormat.setMaximumFractionDigits(RealNumber.DEFAULT_SCALE_FOR_PRINTING);
+        decimalFormat.setMinimumFractionDigits(0);
+        decimalFormat.setRoundingMode(RoundingMode.FLOOR);
+        decimalFormat.setGroupingUsed(false);
+
+        final Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            final BigDecimal value = new BigDecimal(new BigInteger(random.nextInt(120) + 1, random), random.nextInt(40) - 5);
+            final RealNumber number = RealNumber.of(random.nextBoolean() ? value : value.negate());
+            final String expected = decimalFormat.format(number.eval());
+            // DecimalFormat prints tiny negative numbers as "-0", although rounding them down gives -0.0000000001
+            if (!"-0".equals(expected)) {
+                assertThat(number.toString()).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void toString_is_computed_once() {
+        final RealNumber number = RealNumber.of("2").add(RealNumber.of("0.25"));
+
+        assertThat(number.toString()).isSameAs(number.toString());
+    }
+
+    @Test
+    void small_integers_are_shared() {
+        assertThat(RealNumber.of("5")).isSameAs(RealNumber.of(5));
+        assertThat(RealNumber.of("-128")).isSameAs(RealNumber.of(-128));
+        assertThat(RealNumber.of("1024.000")).isSameAs(RealNumber.of(1024));
+        assertThat(RealNumber.of(2).add(RealNumber.of(3))).isSameAs(RealNumber.of(5));
+        assertThat(RealNumber.of("0.5").multiply(RealNumber.of(2))).isSameAs(RealNumber.ONE);
+        assertThat(RealNumber.of(0)).isSameAs(RealNumber.ZERO);
+        assertThat(RealNumber.of(1025)).isNotSameAs(RealNumber.of(1025));
+    }
+
+    @Test
+    void integral_values_are_equal_regardless_of_origin() {
+        assertThat(RealNumber.of(5))
+                .isEqualTo(RealNumber.of("5"))
+                .isEqualTo(RealNumber.of(new BigDecimal("5.000")))
+                .isEqualTo(RealNumber.of("2.5").add(RealNumber.of("2.5")));
+        assertThat(RealNumber.of(5).hashCode())
+                .isEqualTo(RealNumber.of(new BigDecimal("5.000")).hashCode());
+        assertThat(RealNumber.of(Long.MAX_VALUE))
+                .isEqualTo(RealNumber.of(String.valueOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void integral_arithmetic_promotes_on_overflow() {
+        final RealNumber max = RealNumber.of(Long.MAX_VALUE);
+        assertThat(max.add(RealNumber.of(1)).eval())
+                .isEqualTo(new BigDecimal("9223372036854775808"));
+        assertThat(RealNumber.of(Long.MIN_VALUE).subtract(RealNumber.of(1)).eval())
+                .isEqualTo(new BigDecimal("-9223372036854775809"));
+        assertThat(max.multiply(RealNumber.of(2)).toString())
+                .isEqualTo("18446744073709551614");
+        assertThat(max.add(RealNumber.of(1)).subtract(RealNumber.of(1)))
+                .isEqualTo(max);
+    }
+
+    @Test
+    void integral_arithmetic_with_fractions() {
+        assertThat(RealNumber.of(2).add(RealNumber.of("0.5")))
+                .isEqualTo(RealNumber.of("2.5"));
+        assertThat(RealNumber.of(2).multiply(RealNumber.of("0.5")))
+                .isEqualTo(RealNumber.of(1));
+    }
+}
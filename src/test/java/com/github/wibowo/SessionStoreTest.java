@@ -0,0 +1,241 @@
+package com.github.wibowo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SessionStoreTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("rpn-store");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (final Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Opens the store without a sync thread, with a tiny window so that it is moved often. Stores that are not
+     * closed are left as if the process had died.
+     */
+    private SessionStore open(final int snapshotInterval) throws IOException {
+        return SessionStore.open(directory, 0, snapshotInterval, 64, RPNStack::new);
+    }
+
+    private CalculatorSession session(final SessionStore store,
+                                      final String... lines) {
+        final CalculatorSession session = new CalculatorSession(CalculatorSession.UNLIMITED_UNDO_DEPTH, store.stack());
+        for (final String line : lines) {
+            session.processLine(line, TestHelper.NO_OUTPUT);
+        }
+        return session;
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void journaled_lines_are_replayed_after_crash() throws IOException {
+        session(open(1000), "1 2 3 4 5 6", "+ * 0.5", "10 sqrt undo", "1000000000000000000000 -7");
+
+        // the first store is not closed, as if the process had died
+        final CalculatorSession restored = session(open(1000));
+
+        assertThat(restored.render()).isEqualTo("stack: 1 2 3 44 0.5 10 1000000000000000000000 -7");
+    }
+
+    @Test
+    void undo_history_survives_restart() throws IOException {
+        final SessionStore store = open(1000);
+        session(store, "5 2 -", "3 /");
+        store.close();
+
+        final CalculatorSession restored = session(open(1000), "undo");
+
+        assertThat(restored.render()).isEqualTo("stack: 3 3");
+    }
+
+    @Test
+    void closing_takes_snapshot_and_starts_empty_journal() throws IOException {
+        final SessionStore store = open(1000);
+        session(store, "1 2", "3");
+        store.close();
+
+        assertThat(files()).containsExactly("journal-1", "snapshot-1");
+        assertThat(Files.size(directory.resolve("journal-1"))).isEqualTo(0);
+        assertThat(session(open(1000)).render()).isEqualTo("stack: 1 2 3");
+    }
+
+    @Test
+    void clear_is_replayed_after_crash() throws IOException {
+        session(open(1000), "1 2 3", "clear");
+
+        assertThat(session(open(1000)).render()).isEqualTo("stack: ");
+    }
+
+    @Test
+    void clear_survives_restart() throws IOException {
+        final SessionStore store = open(1000);
+        session(store, "1 2 3");
+        store.close();
+        final SessionStore reopened = open(1000);
+        session(reopened, "clear");
+        reopened.close();
+
+        assertThat(session(open(1000)).render()).isEqualTo("stack: ");
+    }
+
+    @Test
+    void undo_of_push_is_replayed_after_crash() throws IOException {
+        session(open(1000), "1 2 3", "undo");
+
+        assertThat(session(open(1000)).render()).isEqualTo("stack: 1 2");
+    }
+
+    @Test
+    void undo_of_push_survives_restart() throws IOException {
+        final SessionStore store = open(1000);
+        session(store, "1 2 3");
+        store.close();
+        final SessionStore reopened = open(1000);
+        session(reopened, "undo");
+        reopened.close();
+
+        assertThat(session(open(1000)).render()).isEqualTo("stack: 1 2");
+    }
+
+    @Test
+    void snapshot_is_taken_every_interval() throws IOException {
+        session(open(2), "1", "2", "3 +", "clear 7", "8");
+
+        assertThat(files()).containsExactly("journal-2", "snapshot-2");
+        assertThat(session(open(2)).render()).isEqualTo("stack: 7 8");
+    }
+
+    @Test
+    void torn_record_is_dropped() throws IOException {
+        session(open(1000), "1 2", "3");
+        try (FileChannel channel = FileChannel.open(directory.resolve("journal-0"), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // skip the records: length, CRC and body
+            final ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+            long end = 0;
+            while (channel.read(length, end) == Integer.BYTES && length.getInt(0) != 0) {
+                end += 2 * Integer.BYTES + length.getInt(0);
+                length.clear();
+            }
+            // a record whose body does not match its CRC
+            final ByteBuffer record = ByteBuffer.allocate(16).putInt(8).putInt(42).putInt(0).putInt(1);
+            record.flip();
+            channel.write(record, end);
+        }
+
+        final CalculatorSession restored = session(open(1000), "4");
+
+        assertThat(restored.render()).isEqualTo("stack: 1 2 3 4");
+        assertThat(session(open(1000)).render()).isEqualTo("stack: 1 2 3 4");
+    }
+
+    @Test
+    void restored_fork_is_journaled_whole() throws IOException {
+        session(open(1000), "1 2 fork 3 4", "+", "restore 5");
+
+        assertThat(session(open(1000)).render()).isEqualTo("stack: 1 2 5");
+    }
+
+    @Test
+    void failure_to_write_stops_journaling_but_not_the_session() throws IOException {
+        final SessionStore store = open(2);
+        final CalculatorSession session = session(store, "1 2");
+
+        // the next snapshot can't be written, since the directory is gone
+        final Path moved = directory.resolveSibling(directory.getFileName() + "-moved");
+        Files.move(directory, moved);
+        Files.createFile(directory);
+        try {
+            session.processLine("3", TestHelper.NO_OUTPUT);
+            session.processLine("+", TestHelper.NO_OUTPUT);
+
+            assertThat(store.failure()).isNotNull();
+            assertThat(session.render()).isEqualTo("stack: 1 5");
+            store.close();
+        } finally {
+            Files.delete(directory);
+            Files.move(moved, directory);
+        }
+
+        // lines journaled before the failure are kept
+        assertThat(session(open(1000)).render()).isEqualTo("stack: 1 2 3");
+    }
+
+    @Test
+    void snapshot_of_another_format_version_is_rejected() throws IOException {
+        final SessionStore store = open(1000);
+        session(store, "1 2 +");
+        store.close();
+        try (FileChannel channel = FileChannel.open(directory.resolve("snapshot-1"), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the version follows the magic, and the CRC is updated, as if written by another version
+            final ByteBuffer content = ByteBuffer.allocate((int) channel.size());
+            channel.read(content, 0);
+            content.put(Integer.BYTES, (byte) (SessionStore.FORMAT_VERSION + 1));
+            final CRC32 crc = new CRC32();
+            crc.update(content.array(), 0, content.capacity() - Integer.BYTES);
+            content.putInt(content.capacity() - Integer.BYTES, (int) crc.getValue());
+            content.rewind();
+            channel.write(content, 0);
+        }
+
+        final IOException exception = assertThrows(IOException.class, () -> open(1000));
+
+        assertThat(exception.getMessage()).endsWith("has unsupported format version 2, expected 1");
+    }
+
+    @Test
+    void journal_record_of_another_format_version_is_rejected() throws IOException {
+        session(open(1000), "1 2 +");
+        try (FileChannel channel = FileChannel.open(directory.resolve("journal-0"), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the version is the first byte of the body of the record, covered by its CRC
+            final ByteBuffer header = ByteBuffer.allocate(2 * Integer.BYTES);
+            channel.read(header, 0);
+            final ByteBuffer body = ByteBuffer.allocate(header.getInt(0));
+            channel.read(body, header.capacity());
+            body.put(0, (byte) (SessionStore.FORMAT_VERSION + 1));
+            final CRC32 crc = new CRC32();
+            crc.update(body.array());
+            header.putInt(Integer.BYTES, (int) crc.getValue());
+            header.rewind();
+            body.rewind();
+            channel.write(header, 0);
+            channel.write(body, header.capacity());
+        }
+
+        final IOException exception = assertThrows(IOException.class, () -> open(1000));
+
+        assertThat(exception.getMessage()).endsWith("(Unsupported format version 2, expected 1)");
+    }
+}
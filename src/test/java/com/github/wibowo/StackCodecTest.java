@@ -0,0 +1,104 @@
+package com.github.wibowo;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StackCodecTest {
+
+    /**
+     * Encode through a tiny buffer, so that items are split across several writes
+     */
+    private static ByteBuffer encode(final CalculatorStack<OperationExecution> stack) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final WritableByteChannel channel = Channels.newChannel(bytes);
+        new StackCodec.Encoder(ByteBuffer.allocate(16), buffer -> {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }).encodeStack(stack, 0).flush();
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    @Test
+    void stack_round_trips_with_its_undo_history() throws IOException {
+        final CalculatorSession session = new CalculatorSession(CalculatorSession.UNLIMITED_UNDO_DEPTH);
+        session.processLine("1 2 3 4 5 sum 12345678901234567890123 2 sqrt 3 /", TestHelper.NO_OUTPUT);
+
+        final ByteBuffer encoded = encode(session.stack());
+        final CalculatorSession decoded = new CalculatorSession(CalculatorSession.UNLIMITED_UNDO_DEPTH);
+        assertThat(StackCodec.decodeStack(encoded, decoded.stack())).isEqualTo(3);
+        assertThat(encoded.remaining()).isEqualTo(0);
+
+        assertThat(decoded.render()).isEqualTo(session.render());
+        for (int i = 0; i < 3; i++) {
+            final OperationExecution expected = session.stack().get(i);
+            final OperationExecution actual = decoded.stack().get(i);
+            assertThat(actual.getOperation()).isEqualTo(expected.getOperation());
+            assertThat(actual.getResult()).isEqualTo(expected.getResult());
+            assertThat(actual.getArguments()).isEqualTo(expected.getArguments());
+        }
+        decoded.processLine("undo", TestHelper.NO_OUTPUT);
+        assertThat(decoded.render()).isEqualTo("stack: 15 12345678901234567890123 1.4142135623 3");
+    }
+
+    @Test
+    void item_size_is_known_before_encoding() {
+        final OperationExecution item = new OperationExecution(Operation.Divide, TestHelper.getArguments("3", "0.5"));
+        final ByteBuffer buffer = ByteBuffer.allocate(StackCodec.encodedSize(item));
+
+        StackCodec.encode(item, buffer);
+
+        assertThat(buffer.remaining()).isEqualTo(0);
+        buffer.flip();
+        final OperationExecution decoded = StackCodec.decode(buffer);
+        assertThat(decoded.getResult()).isEqualTo(item.getResult());
+        assertThat(decoded.getArguments()).isEqualTo(item.getArguments());
+    }
+
+    @Test
+    void numbers_larger_than_the_buffer_are_written_on_their_own() throws IOException {
+        final CalculatorStack<OperationExecution> stack = new RPNStack<>();
+        stack.push(new OperationExecution(Operation.Push, RealNumber.exact(new BigDecimal("7").pow(100))));
+
+        final ByteBuffer encoded = encode(stack);
+
+        final CalculatorStack<OperationExecution> decoded = new PersistentRPNStack<>();
+        StackCodec.decodeStack(encoded, decoded);
+        assertThat(decoded.peek(0).getResult()).isEqualTo(stack.peek(0).getResult());
+    }
+
+    @Test
+    void operation_codes_do_not_depend_on_declaration_order() {
+        final Operation[] byCode = {Operation.Push, Operation.Plus, Operation.Minus, Operation.Multiply,
+                Operation.Divide, Operation.Sqrt, Operation.Sum, Operation.Product, Operation.Mean, Operation.Min,
+                Operation.Max, Operation.SumOfSquares};
+        for (int code = 0; code < byCode.length; code++) {
+            assertThat(StackCodec.code(byCode[code])).isEqualTo((byte) code);
+            assertThat(StackCodec.operation(code)).isEqualTo(byCode[code]);
+        }
+        // every operation that can be on a stack has a code
+        for (final Operation operation : Operation.values()) {
+            if (operation.pushArgumentsOnUndo) {
+                assertThat(StackCodec.operation(StackCodec.code(operation))).isEqualTo(operation);
+            }
+        }
+    }
+
+    @Test
+    void invalid_operation_code_is_rejected() {
+        final IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> StackCodec.decode(ByteBuffer.wrap(new byte[]{12, 2})));
+        assertThat(exception.getMessage()).isEqualTo("Invalid operation code: 12");
+
+        assertThrows(IllegalStateException.class, () -> StackCodec.code(Operation.Undo));
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.wibowo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StackRendererTest {
+
+    private final RPNStack<RealNumber> stack = new RPNStack<>();
+
+    @Test
+    void full_render_shows_every_item() {
+        stack.push(RealNumber.of("1")).push(RealNumber.of("2")).push(RealNumber.of("3"));
+
+        assertThat(StackRenderer.FULL.render(stack, 2)).isEqualTo("stack: 1 2 3");
+    }
+
+    @Test
+    void incremental_render_shows_changed_items_only() {
+        stack.push(RealNumber.of("1")).push(RealNumber.of("2")).push(RealNumber.of("3"));
+
+        assertThat(StackRenderer.INCREMENTAL.render(stack, 0)).isEqualTo("stack (from 0): 1 2 3");
+        assertThat(StackRenderer.INCREMENTAL.render(stack, 2)).isEqualTo("stack (from 2): 3");
+        assertThat(StackRenderer.INCREMENTAL.render(stack, 3)).isEqualTo("stack (from 3): ");
+    }
+
+    @Test
+    void windowed_render_shows_top_items_and_depth() {
+        stack.push(RealNumber.of("1")).push(RealNumber.of("2")).push(RealNumber.of("3"));
+
+        assertThat(StackRenderer.windowed(2).render(stack, 0)).isEqualTo("stack (depth 3): ... 2 3");
+        assertThat(StackRenderer.windowed(3).render(stack, 0)).isEqualTo("stack (depth 3): 1 2 3");
+        assertThat(StackRenderer.windowed(3).render(new RPNStack<>(), 0)).isEqualTo("stack (depth 0): ");
+    }
+
+    @Test
+    void parse_specification() {
+        assertThat(StackRenderer.parse("full")).isSameAs(StackRenderer.FULL);
+        assertThat(StackRenderer.parse("incremental")).isSameAs(StackRenderer.INCREMENTAL);
+
+        stack.push(RealNumber.of("1")).push(RealNumber.of("2"));
+        assertThat(StackRenderer.parse("window:1").render(stack, 0)).isEqualTo("stack (depth 2): ... 2");
+
+        final IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> StackRenderer.parse("window:x"));
+        assertThat(exception.getMessage()).isEqualTo("Unsupported stack rendering: [window:x]");
+        assertThrows(IllegalArgumentException.class, () -> StackRenderer.parse("window:0"));
+    }
+
+    @Test
+    void invalid_render_property_is_reported() {
+        System.setProperty(CalculatorSession.RENDER_PROPERTY, "window:none");
+        try {
+            assertThat(RPNCalculator.invalidProperty())
+                    .isEqualTo("Invalid -Drpn.render: Unsupported stack rendering: [window:none]");
+        } finally {
+            System.clearProperty(CalculatorSession.RENDER_PROPERTY);
+        }
+        assertThat(RPNCalculator.invalidProperty()).isNull();
+    }
+}
@@ -0,0 +1,119 @@
+package com.github.wibowo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StraightLineEvaluatorTest {
+
+    private final List<String> messages = new ArrayList<>();
+
+    private final CalculatorOutput output = TestHelper.recordingOutput(messages);
+
+    @Test
+    void only_arithmetic_programs_are_specialized() {
+        assertThat(StraightLineEvaluator.of(CompiledProgram.compile("1 2 + 3 * sqrt 4 / 5 -"))).isNotNull();
+        assertThat(StraightLineEvaluator.of(CompiledProgram.compile("1 2 undo"))).isNull();
+        assertThat(StraightLineEvaluator.of(CompiledProgram.compile("1 2 clear"))).isNull();
+        assertThat(StraightLineEvaluator.of(CompiledProgram.compile("1 2 ("))).isNull();
+        assertThat(StraightLineEvaluator.of(CompiledProgram.compile(""))).isNull();
+    }
+
+    @Test
+    void produces_same_stack_as_interpreter() {
+        assertSameAsInterpreter("1 2 3 4 5", "1 2 + 3 * 4 5 6");
+        assertSameAsInterpreter("1 2 3 4 5", "+ * -");
+        assertSameAsInterpreter("7 12", "2 / * 4 / 2 sqrt");
+        assertSameAsInterpreter("5 4", "3 2 * + 1.5 -");
+    }
+
+    @Test
+    void produces_same_stack_as_interpreter_with_each_precision() {
+        for (final Precision precision : Precision.values()) {
+            assertSameAsInterpreter("1 2 3 4 5", "1 2 + 3 * 4 5 6", precision);
+            assertSameAsInterpreter("7 12", "2 / * 4 / 2 sqrt", precision);
+            assertSameAsInterpreter("1", "3 / 123456789012345678901 0.1 *", precision);
+        }
+    }
+
+    @Test
+    void undo_restores_arguments_of_last_operation() {
+        final CalculatorSession session = sessionOf("10");
+        final StraightLineEvaluator evaluator = StraightLineEvaluator.of(CompiledProgram.compile("1 2 + 3 * +"));
+
+        assertThat(evaluator.execute(session.stack(), Precision.DEFAULT)).isTrue();
+        assertThat(session.toString()).isEqualTo("stack: 19");
+
+        session.processLine("undo", output);
+        assertThat(session.toString()).isEqualTo("stack: 10 9");
+    }
+
+    @Test
+    void leaves_stack_untouched_when_operation_fails() {
+        final CalculatorStack<OperationExecution> stack = stackOf("1 2");
+        final StraightLineEvaluator evaluator = StraightLineEvaluator.of(CompiledProgram.compile("3 0 / +"));
+
+        assertThat(evaluator.execute(stack, Precision.DEFAULT)).isFalse();
+        assertThat(stack.toString()).isEqualTo("stack: 1 2");
+    }
+
+    @Test
+    void leaves_stack_untouched_when_there_are_not_enough_items() {
+        final CalculatorStack<OperationExecution> stack = stackOf("1");
+        final StraightLineEvaluator evaluator = StraightLineEvaluator.of(CompiledProgram.compile("+ +"));
+
+        assertThat(evaluator.execute(stack, Precision.DEFAULT)).isFalse();
+        assertThat(stack.toString()).isEqualTo("stack: 1");
+    }
+
+    @Test
+    void hot_program_gets_evaluator_after_threshold() {
+        final CompiledProgram program = CompiledProgram.compile("1 2 +");
+
+        assertThat(program.evaluator(3)).isNull();
+        assertThat(program.evaluator(3)).isNull();
+        final StraightLineEvaluator evaluator = program.evaluator(3);
+        assertThat(evaluator).isNotNull();
+        assertThat(program.evaluator(3)).isSameAs(evaluator);
+        assertThat(CompiledProgram.compile("1 2 +").evaluator(-1)).isNull();
+    }
+
+    private void assertSameAsInterpreter(final String initialStack,
+                                         final String line) {
+        assertSameAsInterpreter(initialStack, line, Precision.DEFAULT);
+    }
+
+    private void assertSameAsInterpreter(final String initialStack,
+                                         final String line,
+                                         final Precision precision) {
+        final CalculatorSession session = sessionOf(initialStack);
+        session.setPrecision(precision);
+        session.execute(CompiledProgram.compile(line), output);
+        final CalculatorStack<OperationExecution> interpreted = session.stack();
+
+        final CalculatorStack<OperationExecution> specialized = stackOf(initialStack);
+        assertThat(StraightLineEvaluator.of(CompiledProgram.compile(line)).execute(specialized, precision)).isTrue();
+
+        assertThat(specialized.toString()).isEqualTo(interpreted.toString());
+        while (interpreted.size() > 0) {
+            final OperationExecution expected = interpreted.pop();
+            final OperationExecution actual = specialized.pop();
+            assertThat(actual.getOperation()).isEqualTo(expected.getOperation());
+            assertThat(actual.getArguments()).isEqualTo(expected.getArguments());
+            assertThat(actual.getResult()).isEqualTo(expected.getResult());
+        }
+    }
+
+    private CalculatorStack<OperationExecution> stackOf(final String line) {
+        return sessionOf(line).stack();
+    }
+
+    private CalculatorSession sessionOf(final String line) {
+        final CalculatorSession session = new CalculatorSession();
+        session.execute(CompiledProgram.compile(line), output);
+        return session;
+    }
+}
@@ -7,6 +7,38 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 public final class TestHelper {
+
+    /**
+     * Output discarding every message
+     */
+    public static final CalculatorOutput NO_OUTPUT = new CalculatorOutput() {
+        @Override
+        public void info(final String message) {
+        }
+
+        @Override
+        public void warn(final String message) {
+        }
+    };
+
+    /**
+     * @return output adding every message, warnings and stacks alike, to the given list
+     */
+    @NotNull
+    public static CalculatorOutput recordingOutput(final List<String> messages) {
+        return new CalculatorOutput() {
+            @Override
+            public void info(final String message) {
+                messages.add(message);
+            }
+
+            @Override
+            public void warn(final String message) {
+                messages.add(message);
+            }
+        };
+    }
+
     @NotNull
     public static List<RealNumber> getArguments(final String... arguments) {
         return Arrays.stream(arguments).map(RealNumber::of).collect(Collectors.toList());
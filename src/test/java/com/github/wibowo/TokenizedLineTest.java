@@ -0,0 +1,97 @@
+package com.github.wibowo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TokenizedLineTest {
+
+    @Test
+    void splits_line_into_tokens() {
+        final TokenizedLine tokens = TokenizedLine.tokenize("  5 \t 2  +  ");
+        assertThat(tokens.size()).isEqualTo(3);
+        assertThat(tokens.token(0)).isEqualTo("5");
+        assertThat(tokens.token(1)).isEqualTo("2");
+        assertThat(tokens.token(2)).isEqualTo("+");
+    }
+
+    @Test
+    void blank_line_has_no_token() {
+        assertThat(TokenizedLine.tokenize("").size()).isEqualTo(0);
+        assertThat(TokenizedLine.tokenize("  \t ").size()).isEqualTo(0);
+    }
+
+    @Test
+    void finding_token_at_start() {
+        assertThat(TokenizedLine.tokenize("1 2 3").position(0)).isEqualTo(1);
+    }
+
+    @Test
+    void finding_token_at_start_where_there_is_leading_whitespace() {
+        assertThat(TokenizedLine.tokenize("    1 2 3").position(0)).isEqualTo(5);
+    }
+
+    @Test
+    void finding_token_index_on_line_with_single_whitespace_separators() {
+        // getting 3rd "*"
+        assertThat(TokenizedLine.tokenize("1 2 3 * 5 + * * 6 5").position(7)).isEqualTo(15);
+    }
+
+    @Test
+    void finding_token_index_on_line_with_multi_whitespace_separators() {
+        // getting 3rd "*"
+        assertThat(TokenizedLine.tokenize("1    2   3   *  5 + * * 6 5").position(7)).isEqualTo(23);
+    }
+
+    @Test
+    void finding_token_index_on_line_containing_division_token() {
+        // getting 2nd "*"
+        assertThat(TokenizedLine.tokenize("1    2   4   /  5 + * * 6 5").position(7)).isEqualTo(23);
+    }
+
+    @Test
+    void finding_token_index_on_line_containing_sqrt_token() {
+        // getting "6"
+        assertThat(TokenizedLine.tokenize("1 4 sqrt 5 6").position(4)).isEqualTo(12);
+    }
+
+    @Test
+    void finding_token_index_on_line_containing_minus_token() {
+        // getting "6"
+        assertThat(TokenizedLine.tokenize("1 4 - 5 6").position(4)).isEqualTo(9);
+    }
+
+    @Test
+    void finding_token_index_on_line_containing_regex_metacharacters() {
+        // getting the second "("
+        assertThat(TokenizedLine.tokenize("( 1 [ ( 2").position(3)).isEqualTo(7);
+    }
+
+    @Test
+    void finding_repeated_token() {
+        // getting the second "5"
+        final TokenizedLine tokens = TokenizedLine.tokenize("5 55 5");
+        assertThat(tokens.start(2)).isEqualTo(5);
+        assertThat(tokens.end(2)).isEqualTo(6);
+    }
+
+    @Test
+    void finding_token_beyond_available_tokens() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> TokenizedLine.tokenize("1 2 3").position(4)
+        );
+        assertThat(exception.getMessage()).isEqualTo("Unable to find token with index [4] in line [1 2 3]. This might be a programming issue.");
+    }
+
+    @Test
+    void handles_more_tokens_than_initial_capacity() {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            builder.append(i).append(' ');
+        }
+        final TokenizedLine tokens = TokenizedLine.tokenize(builder.toString());
+        assertThat(tokens.size()).isEqualTo(100);
+        assertThat(tokens.token(99)).isEqualTo("99");
+    }
+}